@@ -14,11 +14,16 @@ import java.io.File;
 
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 
+import co.spillikin.tools.eclipse.editortabs.model.PathPool;
 import co.spillikin.tools.eclipse.editortabs.util.DataUtil;
+import co.spillikin.tools.eclipse.editortabs.util.ResolutionCache;
+import co.spillikin.tools.eclipse.editortabs.util.SessionPathUpdater;
 import static co.spillikin.tools.eclipse.editortabs.Constants.FILENAME;
 
 /**
@@ -58,6 +63,8 @@ public class Activator implements BundleActivator {
         IPath statePath = Platform.getStateLocation(bundleContext.getBundle());
         String path = statePath.toString() + "/" + FILENAME;
         DataUtil.initialize(workspacePath, path);
+        // Follow files that get moved or deleted.
+        SessionPathUpdater.install();
 
     }
 
@@ -74,8 +81,16 @@ public class Activator implements BundleActivator {
      */
     public void stop(BundleContext bundleContext) throws Exception {
 
+        SessionPathUpdater.uninstall();
+        // Running with -debug, say what sharing paths saved us.
+        if (Platform.inDebugMode()) {
+            Platform.getLog(bundleContext.getBundle()).log(new Status(IStatus.INFO,
+                bundleContext.getBundle().getSymbolicName(), PathPool.report()));
+        }
         DataUtil fgData = DataUtil.getInstance();
         fgData.save();
+        fgData.close();
+        ResolutionCache.disposeInstance();
 
         Activator.context = null;
     }
@@ -21,14 +21,52 @@ public class Constants {
     // Information stored in the XML file.
     // Version for backwards comparability
     public static final Integer VERSION_MAJOR = 1;
-    public static final Integer VERSION_MINOR = 1;
+    // 2: Selection text capped at SELECTION_TEXT_MAX_CHARS.  Older stores
+    // are rewritten once on load to shrink them.
+    public static final Integer VERSION_MINOR = 2;
     public static final String AUTHOR = "Christopher Hull";
     public static final String COMPANY = "Spillikin Aerospace";
 
     public static final String DIALOG_TITLE = "EditorSessions Plugin";
 
-    // State saved as...
+    // State used to be saved as this one file.  Now it is split up in
+    // SHARD_DIRECTORY next to it, and this is only read once to migrate.
+    // The journal files still hang off this name.
     public static final String FILENAME = "sessionData.xml";
+    // The old file is renamed to this once migrated.
+    public static final String MIGRATED_SUFFIX = ".migrated";
+    // One file per session in here...
+    public static final String SHARD_DIRECTORY = "sessions";
+    public static final String SHARD_SUFFIX = ".session";
+    // ...plus this, holding the names, current / previous and version.
+    public static final String MANIFEST_FILENAME = "manifest";
+    // Loading at least this many shards at once spreads them over threads.
+    public static final int PARALLEL_SHARD_LOAD_MIN = 8;
+    // Changes since the last checkpoint are appended here...
+    public static final String JOURNAL_SUFFIX = ".journal";
+    // ...and moved here while being folded into the checkpoint.
+    public static final String JOURNAL_COMPACTING_SUFFIX = ".journal.old";
+    // Number of journal records before we fold them into the checkpoint.
+    public static final int JOURNAL_COMPACT_THRESHOLD = 500;
+    // Saves are held this long (ms) so a burst of them turns into one write.
+    public static final long SAVE_DELAY_MS = 500;
+    // Longest we will hold up Eclipse shutdown (ms) waiting on a background write.
+    public static final long SAVE_FLUSH_TIMEOUT_MS = 5000;
+    // Opening a session, each batch of tabs should hold the UI thread about this long (ms)...
+    public static final long OPEN_SLICE_MS = 50;
+    // ...and be no bigger than this.
+    public static final int OPEN_BATCH_MAX = 32;
+    // Session files are checked this many at a time...
+    public static final int PATH_RESOLVE_THREADS = 4;
+    // ...and one that takes longer than this (ms) counts as unreachable.
+    public static final long PATH_RESOLVE_TIMEOUT_MS = 2000;
+    // Threads stuck in checks that timed out are replaced, up to this many.
+    public static final int PATH_RESOLVE_MAX_STUCK = 16;
+    // Most file handles the resolution cache keeps before starting over.
+    public static final int RESOLUTION_CACHE_MAX_PATHS = 4096;
+    // Most characters of a selection's text we keep.  Restoring a selection
+    // only needs its offset and length, the text is just a reminder.
+    public static final int SELECTION_TEXT_MAX_CHARS = 256;
 
     // Our properties file
     public static final String RESOURCE_FILE_NAME = "resource.dialogstrings";
@@ -123,6 +161,12 @@ public class Constants {
     public static final String INFO_SELECTED_SESSION_TITLE_KEY = "info_selected_session_title";
     public static final String INFO_SELECTED_SESSION_MESSAGE_KEY = "info_selected_session_message";
 
+    // Info Sessions holding a file
+    public static final String INFO_FIND_SESSIONS_TITLE_KEY = "info_find_sessions_title";
+    public static final String INFO_FIND_SESSIONS_MESSAGE_KEY = "info_find_sessions_message";
+    public static final String INFO_FIND_SESSIONS_NONE_KEY = "info_find_sessions_none";
+    public static final String INFO_FIND_SESSIONS_NO_EDITOR_KEY = "info_find_sessions_no_editor";
+
     // =======================================
     // Exceptions
     public static final String EX_PLUGIN_CANT_FIND_DATA = "Plugin could not find it's data";
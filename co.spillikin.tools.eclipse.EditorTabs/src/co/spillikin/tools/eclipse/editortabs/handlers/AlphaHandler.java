@@ -52,20 +52,16 @@ public class AlphaHandler {
         PluginUtil plugin = iu.getPluginContainer();
         DataUtil fgData = iu.getDataContainer();
 
-        // Business logic.  Get, sort, close all, open list.
-        // We want a list of fileList, not IFile becasue we want to
-        // remember cursor positions.
-        String selectedTab = plugin.getSelectedEditor();
+        // Business logic.  Get, sort, move the tabs where they go.
+        // Nothing is closed, so cursors and everything else stay put.
         List<FileInfo> fileList = plugin.getOpenFileList();
         FileInfo[] fiArray = fileList.toArray(new FileInfo[fileList.size()]);
         Arrays.sort(fiArray);
-        plugin.closeAllEditors();
+        List<String> sorted = new ArrayList<>(fiArray.length);
         for (FileInfo f : fiArray) {
-            plugin.openFile(f);
-        }
-        if ( selectedTab != null ) {
-            plugin.selectEditor(selectedTab);
+            sorted.add(f.getFullPath());
         }
+        plugin.reorderEditors(sorted);
         fgData.save();
     }
 
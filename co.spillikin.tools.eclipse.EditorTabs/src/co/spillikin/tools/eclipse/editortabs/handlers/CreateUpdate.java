@@ -115,8 +115,7 @@ public class CreateUpdate {
             // Create a new copy, or Update an existing session.
             dialog = new CreateUpdateDialog(s, bundle, tabNames, create, currentSessionName,
                 session.getIsSnapshot(), session.getKeepAlphabetical(),
-                session.numToBeAdded(newList), session.numToBeDeleted(newList),
-                session.isIdentical(newList));
+                session.diff(newList, plugin.getSelectedEditor()));
             // otherwise new session is not a copy.
         } else {
             // If we are updating and there is no currently selected session
@@ -0,0 +1,83 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.handlers;
+
+import java.util.Set;
+
+import javax.inject.Named;
+
+import org.eclipse.core.commands.ExecutionException;
+import org.eclipse.e4.core.di.annotations.CanExecute;
+import org.eclipse.e4.core.di.annotations.Execute;
+import org.eclipse.e4.core.di.annotations.Optional;
+import org.eclipse.e4.ui.services.IServiceConstants;
+import org.eclipse.jface.dialogs.MessageDialog;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.ISources;
+
+import co.spillikin.tools.eclipse.editortabs.util.DataUtil;
+import co.spillikin.tools.eclipse.editortabs.util.FailsafeUtil;
+import co.spillikin.tools.eclipse.editortabs.util.PluginUtil;
+import static co.spillikin.tools.eclipse.editortabs.Constants.*;
+
+/**
+ * From the editor's context menu.  Show which sessions hold the file
+ * in the active editor.  Answered from the session map's path index,
+ * so it doesn't matter how many sessions there are.
+ * @author chris
+ *
+ */
+public class FindSessionsHandler {
+
+    // Nothing to ask about without an editor.
+    @CanExecute
+    public boolean canExecute(@Optional @Named(ISources.ACTIVE_EDITOR_NAME) IEditorPart editor) {
+        return editor != null;
+    }
+
+    @Execute
+    public void execute(@Named(IServiceConstants.ACTIVE_SHELL) Shell s) throws ExecutionException {
+
+        // The init util will display needed errors to the user if it fails.
+        // Init all handlers like this.
+        FailsafeUtil iu = null;
+        try {
+            iu = FailsafeUtil.getInstance(s);
+        } catch (Exception e) {
+            throw new ExecutionException(e.getMessage());
+        }
+        PluginUtil plugin = iu.getPluginContainer();
+        DataUtil fgData = iu.getDataContainer();
+
+        String title = plugin.getResourceString(INFO_FIND_SESSIONS_TITLE_KEY);
+        String filePath = plugin.getSelectedEditor();
+        if (filePath == null) {
+            MessageDialog.openInformation(s, title,
+                plugin.getResourceString(INFO_FIND_SESSIONS_NO_EDITOR_KEY));
+            return;
+        }
+
+        Set<String> sessionNames = fgData.getSessionMap().getSessionsHolding(filePath);
+        if (sessionNames.isEmpty()) {
+            MessageDialog.openInformation(s, title,
+                plugin.getResourceString(INFO_FIND_SESSIONS_NONE_KEY));
+            return;
+        }
+        StringBuilder message = new StringBuilder(
+            plugin.getResourceString(INFO_FIND_SESSIONS_MESSAGE_KEY));
+        for (String name : sessionNames) {
+            message.append(name).append('\n');
+        }
+        MessageDialog.openInformation(s, title, message.toString());
+    }
+
+}
@@ -86,8 +86,6 @@ public class SelectHandler {
         // Switch to the new session and update it's state with 
         // other choices made by the user.
         if (dialog.open() == Window.OK) {
-            // Close all the tabs
-            plugin.closeAllEditors();
             String selectedName = dialog.getSelectedSessionName();
             // Get the session map
             SessionMap sessionMap = fgData.getSessionMap();
@@ -99,8 +97,10 @@ public class SelectHandler {
             EditorSession session = sessionMap.getCurrentEditorSession();
             session.updateEditorSessionButtons(dialog.getKeepAlphabetical(),
                 dialog.getIsSnapshot());
-            // Open all the files associated with the session.
-            plugin.openFileList(session.getFileInfoList(), session.getSelectedFile());
+            // Close the tabs the new session doesn't have and open the
+            // ones it does.  Tabs both have stay open as they are.
+            plugin.switchFileList(session.getFileInfoList(), session.getSelectedFile(),
+                session.getKeepAlphabetical());
             // Finally show the new session dialog.
             MessageDialog.openInformation(s,
                 plugin.getResourceString(INFO_SELECTED_SESSION_TITLE_KEY),
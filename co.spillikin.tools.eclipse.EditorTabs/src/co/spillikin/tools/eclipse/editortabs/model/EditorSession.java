@@ -13,12 +13,16 @@ package co.spillikin.tools.eclipse.editortabs.model;
 import java.awt.PageAttributes.OriginType;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 /**
  * This represents an individual editor session, the lowest level
@@ -55,10 +59,59 @@ public class EditorSession {
     private List<FileInfo> fileInfoList = new ArrayList<>();
     private String selectedFile = "";
 
+    // Change tracking, used to journal only the sessions that actually
+    // changed.  Not serialized.
+    // Bumped by every mutator, whether or not anything really changed.
+    private transient long modCount = 0;
+    // modCount as of the last save.
+    private transient long savedModCount = 0;
+    // Fingerprint of the content as of the last save.  Worked out the
+    // first time the session is touched after that, not on every save.
+    private transient long savedFingerprint = 0;
+    private transient boolean fingerprintKnown = false;
+    // Created and never saved.
+    private transient boolean isNew = false;
+    // Told whenever we are touched.  Null for copies.
+    private transient SessionMap owner = null;
+
+    // What getFileInfoList hands out, and what it was built from.
+    // Rebuilt when the list is replaced (or grows or shrinks, JAXB
+    // may fill it in place) or keepAlphabetical flips.  Not serialized.
+    private transient List<FileInfo> fileInfoView = null;
+    private transient List<FileInfo> fileInfoViewSource = null;
+    private transient int fileInfoViewSize = -1;
+    private transient boolean fileInfoViewSorted = false;
+
     // Serialization, package, needed by SessionMap
     EditorSession() {
     }
 
+    /**
+     * Used by the streaming reader, which can't get at the private
+     * JAXB setters.  Null arguments keep the defaults, same as an
+     * attribute missing from the XML.
+     * 
+     * @return a new EditorSession holding the given data.
+     */
+    public static EditorSession fromStream(String label, Boolean isSnapshot,
+        Boolean keepAlphabetical, String selectedFile, List<FileInfo> fileInfoList) {
+        EditorSession session = new EditorSession();
+        if (label != null) {
+            session.label = label;
+        }
+        if (isSnapshot != null) {
+            session.isSnapshot = isSnapshot;
+        }
+        if (keepAlphabetical != null) {
+            session.keepAlphabetical = keepAlphabetical;
+        }
+        if (selectedFile != null) {
+            session.selectedFile = PathPool.intern(selectedFile);
+        }
+        session.fileInfoList = fileInfoList;
+        return session;
+    }
+
     /**
      * Interface
      * Return the label (not used)
@@ -83,7 +136,7 @@ public class EditorSession {
 
     @XmlAttribute
     private void setSelectedFile(String selectedFile) {
-        this.selectedFile = selectedFile;
+        this.selectedFile = PathPool.intern(selectedFile);
     }
 
     /**
@@ -125,22 +178,40 @@ public class EditorSession {
      * if I use this method as JAXB's getter. But for
      * usability I wanted this to be the public one.
      * 
-     * @return List<String>
+     * The handlers call this over and over, so the (possibly sorted)
+     * copy is kept and handed out again until the list or
+     * keepAlphabetical changes.  So it can't be modified.
+     * 
+     * @return List<String>, unmodifiable.
      */
     public List<FileInfo> getFileInfoList() {
-
-        // We don't want to sort the data in the original list
-        // se we'll sort a clone
-        // @SuppressWarnings("unchecked")
-        // unsafe.  Breaks in the null case.
-        // TODO investigate this.
-        // ArrayList<FileInfo> copy = (ArrayList<FileInfo>) ((ArrayList<FileInfo>) fileInfoList).clone();
-
-        FileInfo[] fiArray = fileInfoList.toArray(new FileInfo[fileInfoList.size()]);
-        if (keepAlphabetical) {
-            Arrays.sort(fiArray);
+        boolean sorted = keepAlphabetical;
+        if (fileInfoView == null || fileInfoViewSource != fileInfoList
+            || fileInfoViewSize != fileInfoList.size() || fileInfoViewSorted != sorted) {
+            // We don't want to sort the data in the original list
+            // so we sort a copy.  FileInfo compares on file name alone,
+            // so the names are the sort keys as they are.
+            FileInfo[] fiArray = fileInfoList.toArray(new FileInfo[fileInfoList.size()]);
+            if (sorted) {
+                Arrays.sort(fiArray);
+            }
+            fileInfoView = Collections.unmodifiableList(Arrays.asList(fiArray));
+            fileInfoViewSource = fileInfoList;
+            fileInfoViewSize = fiArray.length;
+            fileInfoViewSorted = sorted;
         }
-        return Arrays.asList(fiArray);
+        return fileInfoView;
+    }
+
+    /**
+     * The list exactly as stored, never sorted.  Used by the 
+     * streaming writer so its output matches JAXB's.
+     * Do not modify.
+     * 
+     * @return List<FileInfo>
+     */
+    public List<FileInfo> getStoredFileInfoList() {
+        return fileInfoList;
     }
 
     /**
@@ -155,6 +226,7 @@ public class EditorSession {
     }
 
     @XmlElement(name = "FileInfo")
+    @XmlJavaTypeAdapter(FileInfoAdapter.class)
     private void setFileInfoListJaxb(List<FileInfo> fileInfoList) {
         this.fileInfoList = fileInfoList;
     }
@@ -170,8 +242,66 @@ public class EditorSession {
         if (getIsSnapshot() || fileInfoList.size() == 0) {
             return;
         }
+        beforeChange();
         this.fileInfoList = fileInfoList;
-        this.selectedFile = selectedFile;
+        this.selectedFile = PathPool.intern(selectedFile);
+        afterChange();
+    }
+
+    /**
+     * Interface
+     * Files were moved or deleted in the workspace.  Follow the moves
+     * and drop the deleted ones, selected file too.  Unlike the update
+     * methods this works on snapshots too, a snapshot of files that
+     * moved is no use to anyone.
+     * 
+     * @param moved Old full path to new full path.  Normalized, see
+     * SessionPathIndex.
+     * @param deleted Full paths, normalized.
+     * @return true if anything in this session changed.  New paths are
+     * written with the same separators as the paths they replace.
+     */
+    public boolean relocateFiles(Map<String, String> moved, Set<String> deleted) {
+        boolean changed = false;
+        List<FileInfo> relocated = new ArrayList<>(fileInfoList.size());
+        for (FileInfo fi : fileInfoList) {
+            String path = SessionPathIndex.normalize(fi.getFullPath());
+            String newPath = moved.get(path);
+            if (deleted.contains(path)) {
+                changed = true;
+            } else if (newPath != null) {
+                relocated.add(fi.movedTo(sameSeparators(newPath, fi.getFullPath())));
+                changed = true;
+            } else {
+                relocated.add(fi);
+            }
+        }
+        String newSelected = selectedFile;
+        if (selectedFile != null && !selectedFile.isEmpty()) {
+            String path = SessionPathIndex.normalize(selectedFile);
+            if (deleted.contains(path)) {
+                newSelected = null;
+            } else if (moved.containsKey(path)) {
+                newSelected = sameSeparators(moved.get(path), selectedFile);
+            }
+        }
+        if (!changed && Objects.equals(newSelected, selectedFile)) {
+            return false;
+        }
+        beforeChange();
+        this.fileInfoList = relocated;
+        this.selectedFile = PathPool.intern(newSelected);
+        afterChange();
+        return true;
+    }
+
+    // A normalized path written the way the old one was, so a session
+    // stored with backslashes doesn't end up with both kinds.
+    private static String sameSeparators(String normalized, String old) {
+        if (old.indexOf('\\') >= 0 && old.indexOf('/') < 0) {
+            return normalized.replace('/', '\\');
+        }
+        return normalized;
     }
 
     /**
@@ -189,10 +319,12 @@ public class EditorSession {
      */
     public void createEditorSessionData(Boolean keepAlpha, Boolean isSanpshot,
         List<FileInfo> fileInfoList, String selectedFile) {
+        beforeChange();
         this.isSnapshot = isSanpshot;
         this.keepAlphabetical = keepAlpha;
         this.fileInfoList = fileInfoList;
-        this.selectedFile = selectedFile;
+        this.selectedFile = PathPool.intern(selectedFile);
+        afterChange();
     }
 
     /**
@@ -231,31 +363,36 @@ public class EditorSession {
     public void updateEditorSessionData(Boolean keepAlpha, Boolean isSanpshot,
         List<FileInfo> originalList, List<FileInfo> newList, Boolean updateSnapShot, 
         String selectedFile) {
+        beforeChange();
         this.isSnapshot = isSanpshot;
         this.keepAlphabetical = keepAlpha;
-        this.selectedFile = selectedFile;
+        this.selectedFile = PathPool.intern(selectedFile);
+        this.fileInfoList = pickUpdatedList(isSanpshot, originalList, newList, updateSnapShot);
+        afterChange();
+    }
+
+    // Which list updateEditorSessionData should keep.
+    private List<FileInfo> pickUpdatedList(Boolean isSanpshot, List<FileInfo> originalList,
+        List<FileInfo> newList, Boolean updateSnapShot) {
         // If all the editor windows are closed, set orignalList and exit
         // no matter what.
         // Identical effect as updateFilePathList(...);
         if (newList.size() == 0) {
-            this.fileInfoList = originalList;
-            return;
+            return originalList;
         }
         // If we are not a snapshot, always set to the 
         // open (non empty) set of tabs.
         if (!isSanpshot) {
-            this.fileInfoList = newList;
-            return;
+            return newList;
             // if we are a snapshot and we want to be updated, use 
             // (non empty) open set of tabs.
         } else {
             if (updateSnapShot) {
-                this.fileInfoList = newList;
-                return;
+                return newList;
             }
         }
         // We are a snapshot and we will keep our original list, no update.
-        this.fileInfoList = originalList;
+        return originalList;
     }
 
     /**
@@ -266,31 +403,128 @@ public class EditorSession {
      * @param isSanpshot
      */
     public void updateEditorSessionButtons(Boolean keepAlpha, Boolean isSanpshot) {
+        beforeChange();
         this.isSnapshot = isSanpshot;
         this.keepAlphabetical = keepAlpha;
+        afterChange();
     }
 
     /**
-     * Return the number of items in the new list 
-     * the can be found in the existing list.
-     * A nice little O n^2 algorithm, but the lists are small.
-     * 
-     * @param thisList
-     * @param newList
-     * @return Number of items in the new list that are also in the
-     * existing list.
+     * A copy to hand to a background save.  FileInfo never changes
+     * once built so only the list itself is copied.
+     * @return EditorSession
      */
-    private Integer numTheSame(List<FileInfo> thisList, List<FileInfo> newList) {
-
-        int numThatMatch = 0;
-        for (FileInfo nf : newList) {
-            for (FileInfo existing : thisList) {
-                if (nf.getFullPath().equals(existing.getFullPath())) {
-                    numThatMatch++;
-                }
-            }
+    EditorSession copy() {
+        EditorSession copy = new EditorSession();
+        copy.label = label;
+        copy.isSnapshot = isSnapshot;
+        copy.keepAlphabetical = keepAlphabetical;
+        copy.selectedFile = selectedFile;
+        copy.fileInfoList = new ArrayList<>(fileInfoList);
+        return copy;
+    }
+
+    /**
+     * Interface
+     * Bumped every time one of the update methods is called, even if
+     * nothing actually changed.
+     * @return
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * True if one of the update methods was called since the last save.
+     * @return
+     */
+    boolean isTouched() {
+        return isNew || modCount != savedModCount;
+    }
+
+    /**
+     * True if this session's content differs from what was last saved.
+     * Cheap unless the session was touched, then one pass over the files.
+     * @return
+     */
+    boolean isChanged() {
+        if (isNew) {
+            return true;
+        }
+        if (modCount == savedModCount) {
+            return false;
         }
-        return numThatMatch;
+        return !fingerprintKnown || fingerprint() != savedFingerprint;
+    }
+
+    /**
+     * Brand new.  Must be saved even though it holds nothing but defaults.
+     */
+    void markNew() {
+        isNew = true;
+    }
+
+    /**
+     * Content as it is now has been saved (or was just loaded).
+     */
+    void markSaved() {
+        isNew = false;
+        savedModCount = modCount;
+        fingerprintKnown = false;
+    }
+
+    /**
+     * Who to tell when we're touched.
+     * @param owner
+     */
+    void setOwner(SessionMap owner) {
+        this.owner = owner;
+    }
+
+    // Call before changing any field.  The first change after a save
+    // records what the saved content looked like.
+    private void beforeChange() {
+        if (!fingerprintKnown) {
+            savedFingerprint = fingerprint();
+            fingerprintKnown = true;
+        }
+    }
+
+    // Call after changing fields.
+    private void afterChange() {
+        modCount++;
+        if (owner != null) {
+            owner.sessionTouched(this);
+        }
+    }
+
+    /**
+     * Fingerprint of everything that gets saved.
+     * @return 64 bit hash
+     */
+    long fingerprint() {
+        long hash = Fingerprint.START;
+        hash = Fingerprint.add(hash, label);
+        hash = Fingerprint.add(hash, isSnapshot);
+        hash = Fingerprint.add(hash, keepAlphabetical);
+        hash = Fingerprint.add(hash, selectedFile);
+        hash = Fingerprint.add(hash, fileInfoList.size());
+        for (FileInfo fi : fileInfoList) {
+            hash = fi.fingerprint(hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Compare this session with a proposed list of files and selection.
+     * Do this once and ask the result, rather than calling the
+     * helpers below one after another.
+     * @param newList
+     * @param newSelectedFile
+     * @return SessionDiff
+     */
+    public SessionDiff diff(List<FileInfo> newList, String newSelectedFile) {
+        return new SessionDiff(fileInfoList, selectedFile, newList, newSelectedFile);
     }
 
     /**
@@ -299,14 +533,7 @@ public class EditorSession {
      * @return true if the same.
      */
     public Boolean isIdentical(List<FileInfo> newList) {
-        if (fileInfoList.size() != newList.size()) {
-            return false;
-        } else {
-            if (numTheSame(fileInfoList, newList) == fileInfoList.size()) {
-                return true;
-            }
-        }
-        return false;
+        return diff(newList, selectedFile).isIdentical();
     }
 
     /**
@@ -318,7 +545,7 @@ public class EditorSession {
      * @return
      */
     public int numToBeAdded(List<FileInfo> newList) {
-        return newList.size() - numTheSame(fileInfoList, newList);
+        return diff(newList, selectedFile).getNumToBeAdded();
     }
 
     /**
@@ -330,7 +557,7 @@ public class EditorSession {
      * @return
      */
     public int numToBeDeleted(List<FileInfo> newList) {
-        return fileInfoList.size() - numTheSame(fileInfoList, newList);
+        return diff(newList, selectedFile).getNumToBeDeleted();
     }
 
 }
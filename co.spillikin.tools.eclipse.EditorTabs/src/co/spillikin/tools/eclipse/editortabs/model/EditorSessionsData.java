@@ -12,6 +12,7 @@ package co.spillikin.tools.eclipse.editortabs.model;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import static co.spillikin.tools.eclipse.editortabs.Constants.VERSION_MAJOR;
 import static co.spillikin.tools.eclipse.editortabs.Constants.VERSION_MINOR;
 
@@ -71,6 +72,9 @@ public class EditorSessionsData {
     // Retrieved and checked whenever used via UI.
     private transient TabsPluginException dataException = null;
 
+    // Bumped whenever anything at this level changes.  Not serialized.
+    private transient long modCount = 0;
+
     // Serialization, public, Needed by DataUtil
     public EditorSessionsData() {
     }
@@ -89,7 +93,10 @@ public class EditorSessionsData {
      */
     @XmlAttribute
     public void setWorkspaceName(String workspaceName) {
-        this.workspaceName = workspaceName;
+        if (!Objects.equals(this.workspaceName, workspaceName)) {
+            this.workspaceName = workspaceName;
+            modCount++;
+        }
     }
 
     /**
@@ -108,6 +115,18 @@ public class EditorSessionsData {
     @XmlElement(name="sessionMapContainer")
     public void setSessionMap(SessionMap sessionMap) {
         this.sessionMap = sessionMap;
+        modCount++;
+    }
+
+    /**
+     * Interface
+     * Modification counter for the whole model, including the session
+     * map and every session in it.  Unchanged since the last save means
+     * there is nothing to save.
+     * @return
+     */
+    public long getModCount() {
+        return modCount + sessionMap.getModCount();
     }
 
     /**
@@ -138,8 +157,12 @@ public class EditorSessionsData {
         this.versionMinor = versionMinor;
     }
 
-    @SuppressWarnings("unused")
-    private String getCompany() {
+    /**
+     * Used by the streaming reader and writer, which can't get at
+     * the private JAXB accessors.
+     * @return
+     */
+    public String getCompany() {
         return company;
     }
 
@@ -148,11 +171,39 @@ public class EditorSessionsData {
         this.company = company;
     }
 
-    @SuppressWarnings("unused")
-    private String getAuthor() {
+    /**
+     * Used by the streaming reader and writer.
+     * @return
+     */
+    public String getAuthor() {
         return author;
     }
 
+    /**
+     * Used by the streaming reader.  Sets the header attributes
+     * as found in the file.  Nulls (attribute missing) keep the default.
+     * 
+     * @param versionMajor
+     * @param versionMinor
+     * @param company
+     * @param author
+     */
+    public void setHeader(Integer versionMajor, Integer versionMinor, String company,
+        String author) {
+        if (versionMajor != null) {
+            this.versionMajor = versionMajor;
+        }
+        if (versionMinor != null) {
+            this.versionMinor = versionMinor;
+        }
+        if (company != null) {
+            this.company = company;
+        }
+        if (author != null) {
+            this.author = author;
+        }
+    }
+
     @XmlAttribute
     private void setAuthor(String author) {
         this.author = author;
@@ -1,8 +1,6 @@
 package co.spillikin.tools.eclipse.editortabs.model;
 
-import javax.xml.bind.annotation.XmlAttribute;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlRootElement;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SELECTION_TEXT_MAX_CHARS;
 
 /**
  * Lowest level data in the model.  Contains actual file informations
@@ -11,108 +9,191 @@ import javax.xml.bind.annotation.XmlRootElement;
  * in this info from Eclipse.   This allows me to avoid 
  * passing in Eclipse PDE objects here, so I'm sitll somewhat MVC.
  * 
+ * There can be a hundred thousand of these, so they are kept small.
+ * Numbers are plain ints and the two booleans are bits, along with a
+ * bit per field saying whether it is set at all (the getters still
+ * hand back null for those, same as before).  Paths and names come
+ * from the PathPool, so each is one shared string.  Text is null
+ * unless there was a selection, and no longer than
+ * SELECTION_TEXT_MAX_CHARS.  A select all in a huge file would
+ * otherwise be written out with every save.  Restoring the selection
+ * only uses offset and length, which are always kept whole.
+ * 
+ * JAXB doesn't see this class, it reads and writes FileInfoXml, which
+ * has the old boxed shape, thru FileInfoAdapter.
+ * 
  * @author chris
  *
  */
-@XmlRootElement
 public class FileInfo implements Comparable<FileInfo> {
-    
-    private String fileName;
-    private String fullPath;
+
+    // Bits in flags.
+    private static final int IS_EMPTY = 1;
+    private static final int IS_DIRECTORY = 1 << 1;
+    private static final int HAS_IS_EMPTY = 1 << 2;
+    private static final int HAS_IS_DIRECTORY = 1 << 3;
+    private static final int HAS_START_LINE = 1 << 4;
+    private static final int HAS_END_LINE = 1 << 5;
+    private static final int HAS_OFFSET = 1 << 6;
+    private static final int HAS_LENGTH = 1 << 7;
+
+    private final String fileName;
+    private final String fullPath;
     // Provided by ITextSelection
-    private Integer endLine;
-    private Integer length;
-    private Integer     offset;
-    private Integer     startLine;
-    private String  text;
-    private Boolean isEmpty;
-    // Adding this for future feature
-    private Boolean isDirectory = false;
-    
-    // Serialization
-    private FileInfo() {}
-    
+    private final int startLine;
+    private final int endLine;
+    private final int offset;
+    private final int length;
+    private final String text;
+    // Booleans and which fields are set, see above.
+    // isDirectory is set (to false) unless asked otherwise.
+    private final byte flags;
+
     public FileInfo (String fileName, String fullPath, Integer startLine,  
         Integer endLine, Integer offset, Integer length, String text, 
         Boolean isEmpty) {
-        this.fileName = fileName;
-        this.fullPath = fullPath;
-        this.startLine = startLine;
-        this.endLine = endLine;
-        this.offset = offset;
-        this.length = length;
-        this.text = text;
-        this.isEmpty = isEmpty;
-    }
-    
+        this(fileName, fullPath, startLine, endLine, offset, length, text, isEmpty, false);
+    }
+
+    /**
+     * Everything, including isDirectory. Used by the streaming reader.
+     * A null isDirectory keeps the default.
+     */
+    public FileInfo (String fileName, String fullPath, Integer startLine,  
+        Integer endLine, Integer offset, Integer length, String text, 
+        Boolean isEmpty, Boolean isDirectory) {
+        this(fileName, fullPath, startLine, endLine, offset, length, text, isEmpty,
+            isDirectory, true);
+    }
+
+    /**
+     * Same as above, but a null isDirectory stays null.  Used where
+     * isDirectory comes from another FileInfo (or FileInfoXml, which
+     * has already defaulted it), so it is kept as it was.
+     */
+    FileInfo (String fileName, String fullPath, Integer startLine, Integer endLine,
+        Integer offset, Integer length, String text, Boolean isEmpty, Boolean isDirectory,
+        boolean defaultDirectory) {
+        // The same paths turn up in session after session, keep one copy.
+        this.fileName = PathPool.intern(fileName);
+        this.fullPath = PathPool.intern(fullPath);
+        this.startLine = startLine == null ? 0 : startLine;
+        this.endLine = endLine == null ? 0 : endLine;
+        this.offset = offset == null ? 0 : offset;
+        this.length = length == null ? 0 : length;
+        this.text = capText(text);
+        if (isDirectory == null && defaultDirectory) {
+            isDirectory = false;
+        }
+        int f = 0;
+        f |= bit(isEmpty, IS_EMPTY, HAS_IS_EMPTY);
+        f |= bit(isDirectory, IS_DIRECTORY, HAS_IS_DIRECTORY);
+        f |= startLine != null ? HAS_START_LINE : 0;
+        f |= endLine != null ? HAS_END_LINE : 0;
+        f |= offset != null ? HAS_OFFSET : 0;
+        f |= length != null ? HAS_LENGTH : 0;
+        this.flags = (byte) f;
+    }
+
+    // The first SELECTION_TEXT_MAX_CHARS of the text, without splitting
+    // a surrogate pair.
+    private static String capText(String text) {
+        if (text == null || text.length() <= SELECTION_TEXT_MAX_CHARS) {
+            return text;
+        }
+        int end = SELECTION_TEXT_MAX_CHARS;
+        if (Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    private static int bit(Boolean b, int value, int has) {
+        if (b == null) {
+            return 0;
+        }
+        return b ? value | has : has;
+    }
+
+    private boolean has(int bit) {
+        return (flags & bit) != 0;
+    }
+
+    private Integer boxed(int value, int has) {
+        return has(has) ? Integer.valueOf(value) : null;
+    }
+
+    private Boolean flag(int value, int has) {
+        return has(has) ? Boolean.valueOf(has(value)) : null;
+    }
+
     /**
      * Future feature.  Manage directories as a whole.
      * @return
      */
     public Boolean getIsDirectory() {
-        return isDirectory;
+        return flag(IS_DIRECTORY, HAS_IS_DIRECTORY);
     }
-    @XmlAttribute
-    private void setIsDirectory(Boolean isDirectory) {
-        this.isDirectory = isDirectory;
-    }
-    
+
     public Boolean getIsEmpty() {
-        return isEmpty;
+        return flag(IS_EMPTY, HAS_IS_EMPTY);
     }
-    @XmlAttribute
-    private void setIsEmpty(Boolean isEmpty) {
-        this.isEmpty = isEmpty;
-    }
-    
+
     public String getFileName() {
         return fileName;
     }
-    @XmlAttribute
-    private void setFileName(String fileName) {
-        this.fileName = fileName;
-    }
+
     public String getFullPath() {
         return fullPath;
     }
-    @XmlAttribute
-    private void setFullPath(String fullPath) {
-        this.fullPath = fullPath;
-    }
+
     public Integer getEndLine() {
-        return endLine;
-    }
-    @XmlAttribute
-    private void setEndLine(Integer endLine) {
-        this.endLine = endLine;
+        return boxed(endLine, HAS_END_LINE);
     }
+
     public Integer getLength() {
-        return length;
-    }
-    @XmlAttribute
-    private void setLength(Integer length) {
-        this.length = length;
+        return boxed(length, HAS_LENGTH);
     }
+
     public Integer getOffset() {
-        return offset;
-    }
-    @XmlAttribute
-    private void setOffset(Integer offset) {
-        this.offset = offset;
+        return boxed(offset, HAS_OFFSET);
     }
+
     public Integer getStartLine() {
-        return startLine;
-    }
-    @XmlAttribute
-    private void setStartLine(Integer startLine) {
-        this.startLine = startLine;
+        return boxed(startLine, HAS_START_LINE);
     }
+
     public String getText() {
         return text;
     }
-    @XmlElement
-    private void setText(String text) {
-        this.text = text;
+
+    /**
+     * The same file, cursor and all, after it was moved or renamed.
+     * @param newFullPath
+     * @return a new FileInfo
+     */
+    public FileInfo movedTo(String newFullPath) {
+        int slash = Math.max(newFullPath.lastIndexOf('/'), newFullPath.lastIndexOf('\\'));
+        String newName = newFullPath.substring(slash + 1);
+        return new FileInfo(newName, newFullPath, getStartLine(), getEndLine(), getOffset(),
+            getLength(), text, getIsEmpty(), getIsDirectory(), false);
+    }
+
+    /**
+     * Roll this FileInfo into a session fingerprint.
+     * @param hash
+     * @return the new hash
+     */
+    long fingerprint(long hash) {
+        hash = Fingerprint.add(hash, fileName);
+        hash = Fingerprint.add(hash, fullPath);
+        hash = Fingerprint.add(hash, getStartLine());
+        hash = Fingerprint.add(hash, getEndLine());
+        hash = Fingerprint.add(hash, getOffset());
+        hash = Fingerprint.add(hash, getLength());
+        hash = Fingerprint.add(hash, text);
+        hash = Fingerprint.add(hash, getIsEmpty());
+        return Fingerprint.add(hash, getIsDirectory());
     }
 
     // Used for alphabetize.
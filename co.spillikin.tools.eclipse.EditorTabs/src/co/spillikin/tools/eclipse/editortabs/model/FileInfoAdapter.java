@@ -0,0 +1,33 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+/**
+ * Lets JAXB read and write FileInfo as FileInfoXml, so the XML stays
+ * exactly as it was while FileInfo itself is kept compact.
+ * 
+ * @author chris
+ *
+ */
+public final class FileInfoAdapter extends XmlAdapter<FileInfoXml, FileInfo> {
+
+    @Override
+    public FileInfo unmarshal(FileInfoXml xml) {
+        return xml == null ? null : xml.toFileInfo();
+    }
+
+    @Override
+    public FileInfoXml marshal(FileInfo fi) {
+        return fi == null ? null : new FileInfoXml(fi);
+    }
+}
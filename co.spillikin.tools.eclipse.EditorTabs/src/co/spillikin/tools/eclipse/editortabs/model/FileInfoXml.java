@@ -0,0 +1,136 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+
+/**
+ * What JAXB reads and writes for each file, the way FileInfo used to
+ * look.  Boxed, so a missing attribute is null and is left out again
+ * on the way back.  Except isDirectory, which has always been false
+ * when missing.  Only lives while the XML is read or written, see
+ * FileInfoAdapter.
+ * 
+ * @author chris
+ *
+ */
+public final class FileInfoXml {
+
+    private String fileName;
+    private String fullPath;
+    private Integer endLine;
+    private Integer length;
+    private Integer offset;
+    private Integer startLine;
+    private String text;
+    private Boolean isEmpty;
+    private Boolean isDirectory = false;
+
+    // Serialization
+    private FileInfoXml() {
+    }
+
+    /**
+     * @param fi
+     */
+    public FileInfoXml(FileInfo fi) {
+        this.fileName = fi.getFileName();
+        this.fullPath = fi.getFullPath();
+        this.endLine = fi.getEndLine();
+        this.length = fi.getLength();
+        this.offset = fi.getOffset();
+        this.startLine = fi.getStartLine();
+        this.text = fi.getText();
+        this.isEmpty = fi.getIsEmpty();
+        this.isDirectory = fi.getIsDirectory();
+    }
+
+    /**
+     * @return the same file as a FileInfo.
+     */
+    public FileInfo toFileInfo() {
+        return new FileInfo(fileName, fullPath, startLine, endLine, offset, length, text,
+            isEmpty, isDirectory, false);
+    }
+
+    public Boolean getIsDirectory() {
+        return isDirectory;
+    }
+    @XmlAttribute
+    private void setIsDirectory(Boolean isDirectory) {
+        this.isDirectory = isDirectory;
+    }
+
+    public Boolean getIsEmpty() {
+        return isEmpty;
+    }
+    @XmlAttribute
+    private void setIsEmpty(Boolean isEmpty) {
+        this.isEmpty = isEmpty;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+    @XmlAttribute
+    private void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFullPath() {
+        return fullPath;
+    }
+    @XmlAttribute
+    private void setFullPath(String fullPath) {
+        this.fullPath = fullPath;
+    }
+
+    public Integer getEndLine() {
+        return endLine;
+    }
+    @XmlAttribute
+    private void setEndLine(Integer endLine) {
+        this.endLine = endLine;
+    }
+
+    public Integer getLength() {
+        return length;
+    }
+    @XmlAttribute
+    private void setLength(Integer length) {
+        this.length = length;
+    }
+
+    public Integer getOffset() {
+        return offset;
+    }
+    @XmlAttribute
+    private void setOffset(Integer offset) {
+        this.offset = offset;
+    }
+
+    public Integer getStartLine() {
+        return startLine;
+    }
+    @XmlAttribute
+    private void setStartLine(Integer startLine) {
+        this.startLine = startLine;
+    }
+
+    public String getText() {
+        return text;
+    }
+    @XmlElement
+    private void setText(String text) {
+        this.text = text;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+/**
+ * 64 bit FNV-1a hash, rolled over the fields of a session one at a time.
+ * Used to tell whether a session that was touched really changed.
+ * Nulls hash differently from empty strings, and each value is followed
+ * by a separator so ("ab", "c") and ("a", "bc") differ.
+ *
+ * @author chris
+ *
+ */
+final class Fingerprint {
+
+    static final long START = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private Fingerprint() {
+    }
+
+    static long add(long hash, String s) {
+        if (s == null) {
+            return addChar(hash, 0xFFFF);
+        }
+        for (int i = 0; i < s.length(); i++) {
+            hash = addChar(hash, s.charAt(i));
+        }
+        return addChar(hash, 0xFFFE);
+    }
+
+    static long add(long hash, Integer i) {
+        if (i == null) {
+            return addChar(hash, 0xFFFF);
+        }
+        int v = i;
+        hash = addChar(hash, v >>> 16);
+        return addChar(hash, v & 0xFFFF);
+    }
+
+    static long add(long hash, Boolean b) {
+        if (b == null) {
+            return addChar(hash, 0xFFFF);
+        }
+        return addChar(hash, b ? 1 : 0);
+    }
+
+    private static long addChar(long hash, int c) {
+        hash = (hash ^ (c & 0xFF)) * PRIME;
+        return (hash ^ (c >>> 8)) * PRIME;
+    }
+}
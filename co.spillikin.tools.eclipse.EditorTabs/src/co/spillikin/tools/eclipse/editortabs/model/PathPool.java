@@ -0,0 +1,120 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * One copy of each file path and name, shared by every FileInfo
+ * in every session.  The same file shows up in session after session,
+ * snapshots too, and each load, capture or import made its own copy
+ * of its strings.
+ *
+ * FileInfo and EditorSession pass their paths and names thru here as
+ * they are set, so nothing else has to think about it.
+ *
+ * Held weakly.  A path no session uses any more is let go like any
+ * other string, the pool never grows past what is actually in use.
+ *
+ * Counts what it saved, see getSavedBytes and toString.  The byte
+ * count is an estimate, a String's header and its char array, which is
+ * what each duplicate dropped would have cost.
+ *
+ * @author chris
+ *
+ */
+public final class PathPool {
+
+    // Rough cost of a String beyond its chars: object header, fields,
+    // and the header of its array.
+    private static final int STRING_OVERHEAD_BYTES = 40;
+
+    private static final Map<String, WeakReference<String>> pool = new WeakHashMap<>();
+
+    private static long lookups = 0;
+    private static long hits = 0;
+    private static long savedBytes = 0;
+
+    private PathPool() {
+    }
+
+    /**
+     * Interface
+     * The pooled copy of a path or name.
+     * @param s May be null.
+     * @return An equal string, the same one every time it is asked
+     * for while anything holds it.  Null for null.
+     */
+    public static synchronized String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+        lookups++;
+        WeakReference<String> ref = pool.get(s);
+        String pooled = (ref == null) ? null : ref.get();
+        if (pooled == null) {
+            pool.put(s, new WeakReference<>(s));
+            return s;
+        }
+        if (pooled != s) {
+            hits++;
+            savedBytes += STRING_OVERHEAD_BYTES + 2L * s.length();
+        }
+        return pooled;
+    }
+
+    /**
+     * Interface
+     * @return number of different strings pooled right now.  Strings
+     * let go but not yet collected may still count.
+     */
+    public static synchronized int size() {
+        return pool.size();
+    }
+
+    /**
+     * Interface
+     * @return copies handed back instead of the one asked about.
+     */
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * Interface
+     * @return Estimated bytes saved by the copies dropped, since the
+     * plugin started or resetCounters.
+     */
+    public static synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Interface
+     * Start counting again.  The pool itself is kept.
+     */
+    public static synchronized void resetCounters() {
+        lookups = 0;
+        hits = 0;
+        savedBytes = 0;
+    }
+
+    /**
+     * Interface
+     * @return A line for the log.
+     */
+    public static synchronized String report() {
+        return "Path pool: " + pool.size() + " strings, " + lookups + " lookups, " + hits
+            + " duplicates dropped, about " + (savedBytes / 1024) + " KB saved";
+    }
+}
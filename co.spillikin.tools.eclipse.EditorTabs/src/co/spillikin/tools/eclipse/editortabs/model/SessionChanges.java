@@ -0,0 +1,132 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Everything that changed in a SessionMap since the last time it was
+ * saved.  Handed out by SessionMap.takeChanges() and written to disk by
+ * the SessionJournal as a handful of small records, so the cost of a
+ * save depends on what the user did and not on how many sessions exist.
+ *
+ * Removed sessions are always applied before changed ones.  Update
+ * deletes a session and recreates it under the same name, so the name
+ * can show up in both sets.
+ *
+ * Sessions in here are copies, not the live ones in the SessionMap.
+ *
+ * @author chris
+ *
+ */
+public class SessionChanges {
+
+    // Sessions that were created or modified, by name.
+    private Map<String, EditorSession> changedSessions = new LinkedHashMap<>();
+    // Names of sessions that were deleted.
+    private Set<String> removedSessions = new LinkedHashSet<>();
+    // Set if current or previous session name moved.
+    private Boolean pointersChanged = false;
+    private String currentSessionName = null;
+    private String previousSessionName = null;
+
+    // Built by SessionMap only.
+    SessionChanges() {
+    }
+
+    void addChangedSession(String name, EditorSession session) {
+        changedSessions.put(name, session);
+    }
+
+    void addRemovedSession(String name) {
+        removedSessions.add(name);
+    }
+
+    void setPointers(String currentSessionName, String previousSessionName) {
+        this.pointersChanged = true;
+        this.currentSessionName = currentSessionName;
+        this.previousSessionName = previousSessionName;
+    }
+
+    /**
+     * Interface
+     * Sessions created or modified since the last save.
+     * @return Map of session name to session. Not null.
+     */
+    public Map<String, EditorSession> getChangedSessions() {
+        return changedSessions;
+    }
+
+    /**
+     * Interface
+     * Names of sessions deleted since the last save.
+     * @return Set of names. Not null.
+     */
+    public Set<String> getRemovedSessions() {
+        return removedSessions;
+    }
+
+    /**
+     * Interface
+     * @return true if current or previous session name changed.
+     */
+    public Boolean getPointersChanged() {
+        return pointersChanged;
+    }
+
+    /**
+     * Interface
+     * Only meaningful if getPointersChanged() is true.
+     * @return
+     */
+    public String getCurrentSessionName() {
+        return currentSessionName;
+    }
+
+    /**
+     * Interface
+     * Only meaningful if getPointersChanged() is true.
+     * @return
+     */
+    public String getPreviousSessionName() {
+        return previousSessionName;
+    }
+
+    /**
+     * Interface
+     * Fold changes collected later on top of these, as if both had
+     * happened in one go.  Used to turn a burst of saves into one write.
+     * @param later
+     */
+    public void merge(SessionChanges later) {
+        for (String name : later.removedSessions) {
+            // Whatever we had for it is gone.  A later recreate
+            // comes back in thru changedSessions below.
+            changedSessions.remove(name);
+            removedSessions.add(name);
+        }
+        changedSessions.putAll(later.changedSessions);
+        if (later.pointersChanged) {
+            setPointers(later.currentSessionName, later.previousSessionName);
+        }
+    }
+
+    /**
+     * Interface
+     * @return true if there is nothing to save.
+     */
+    public Boolean isEmpty() {
+        return changedSessions.isEmpty() && removedSessions.isEmpty() && !pointersChanged;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The difference between what a session holds and a proposed new list
+ * of files (usually the tabs open right now).  Files are matched by
+ * full path.
+ *
+ * Worked out once, in time linear in the size of both lists, and then
+ * asked as many questions as needed.  This replaces the nested loop
+ * that used to run once per question, which was fine for 5 tabs but
+ * not for 400.
+ *
+ * @author chris
+ *
+ */
+public final class SessionDiff {
+
+    // In the proposed list but not the session.  Proposed order.
+    private final List<FileInfo> added = new ArrayList<>();
+    // In the session but not the proposed list.  Session order.
+    private final List<FileInfo> removed = new ArrayList<>();
+    // In both, but not in the same order relative to the other files
+    // in both.  Proposed order.
+    private final List<FileInfo> reordered = new ArrayList<>();
+    private final boolean selectionChanged;
+    private final int existingSize;
+    private final int proposedSize;
+
+    /**
+     * Interface
+     * Compare a session's files with a proposed list.
+     *
+     * @param existing Files in the session now.
+     * @param existingSelected Selected file in the session now.  May be null.
+     * @param proposed The new list.
+     * @param proposedSelected Selected file in the new list.  May be null.
+     */
+    public SessionDiff(List<FileInfo> existing, String existingSelected, List<FileInfo> proposed,
+        String proposedSelected) {
+        this.existingSize = existing.size();
+        this.proposedSize = proposed.size();
+        this.selectionChanged = !Objects.equals(existingSelected, proposedSelected);
+
+        // Position of each existing path among the paths the two lists
+        // share, filled in below.  -1 means not shared (yet).
+        Map<String, Integer> existingIndex = new HashMap<>(existing.size() * 2);
+        for (FileInfo fi : existing) {
+            existingIndex.put(fi.getFullPath(), -1);
+        }
+        List<FileInfo> common = new ArrayList<>();
+        for (FileInfo fi : proposed) {
+            if (existingIndex.containsKey(fi.getFullPath())) {
+                common.add(fi);
+            } else {
+                added.add(fi);
+            }
+        }
+        Set<String> proposedPaths = new HashSet<>(proposed.size() * 2);
+        for (FileInfo fi : proposed) {
+            proposedPaths.add(fi.getFullPath());
+        }
+        int position = 0;
+        for (FileInfo fi : existing) {
+            if (proposedPaths.contains(fi.getFullPath())) {
+                existingIndex.put(fi.getFullPath(), position++);
+            } else {
+                removed.add(fi);
+            }
+        }
+        // Shared files compared position by position.
+        for (int i = 0; i < common.size(); i++) {
+            if (existingIndex.get(common.get(i).getFullPath()) != i) {
+                reordered.add(common.get(i));
+            }
+        }
+    }
+
+    /**
+     * Interface
+     * @return Files that are new.  Unmodifiable.
+     */
+    public List<FileInfo> getAdded() {
+        return Collections.unmodifiableList(added);
+    }
+
+    /**
+     * Interface
+     * @return Files that would go away.  Unmodifiable.
+     */
+    public List<FileInfo> getRemoved() {
+        return Collections.unmodifiableList(removed);
+    }
+
+    /**
+     * Interface
+     * @return Files kept but moved.  Unmodifiable.
+     */
+    public List<FileInfo> getReordered() {
+        return Collections.unmodifiableList(reordered);
+    }
+
+    /**
+     * Interface
+     * @return true if the selected file is different.
+     */
+    public Boolean isSelectionChanged() {
+        return selectionChanged;
+    }
+
+    /**
+     * Interface
+     * @return number of files that would be added.
+     */
+    public int getNumToBeAdded() {
+        return added.size();
+    }
+
+    /**
+     * Interface
+     * @return number of files that would be removed.
+     */
+    public int getNumToBeDeleted() {
+        return removed.size();
+    }
+
+    /**
+     * Interface
+     * Same files, order and selection aside.
+     * @return true if the same.
+     */
+    public Boolean isIdentical() {
+        return existingSize == proposedSize && added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Interface
+     * Same files in the same order with the same selection.
+     * @return true if nothing at all would change.
+     */
+    public Boolean isUnchanged() {
+        return isIdentical() && reordered.isEmpty() && !selectionChanged;
+    }
+}
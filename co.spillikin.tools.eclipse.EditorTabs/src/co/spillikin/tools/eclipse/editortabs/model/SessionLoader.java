@@ -0,0 +1,46 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Supplies the bodies of sessions that SessionMap only knows by name.
+ * At startup only the session names are read.  Each session is loaded
+ * thru here the first time something asks for it.
+ *
+ * @author chris
+ *
+ */
+public interface SessionLoader {
+
+    /**
+     * Load the named sessions in one go.
+     * Names that can't be found are left out of the result.
+     * @param sessionNames
+     * @return Map of session name to session.  Not null.
+     */
+    Map<String, EditorSession> loadSessions(Set<String> sessionNames);
+
+    /**
+     * The full paths of the files in the named sessions, without
+     * loading them, for the path index.  Names left out of the result
+     * get loaded to find out.  By default nothing is known.
+     * @param sessionNames
+     * @return Map of session name to full paths.  Not null.
+     */
+    default Map<String, List<String>> loadFilePaths(Set<String> sessionNames) {
+        return Collections.emptyMap();
+    }
+}
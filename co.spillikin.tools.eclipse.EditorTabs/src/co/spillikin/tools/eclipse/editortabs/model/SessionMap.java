@@ -10,9 +10,14 @@
  */
 package co.spillikin.tools.eclipse.editortabs.model;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.SortedSet;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
@@ -25,6 +30,11 @@ import javax.xml.bind.annotation.XmlRootElement;
  * WorkspaceMap contains SessionMapImpl(s) contains EditorSession(s)
  * This chain is saves and retrieved in a corss version way via JAXB.
  * 
+ * Sessions may be known by name only (see SessionLoader).  Those sit
+ * in the map with a null value and are loaded the first time they
+ * are asked for.  getSessionMap() loads everything, so anything
+ * that walks the whole map (saving, export) sees real sessions.
+ * 
  * @author chris
  *
  */
@@ -39,12 +49,43 @@ public class SessionMap {
     // Map of session names to sessions
     private Map<String, EditorSession> sessionMap = new HashMap<>();
 
+    // Change tracking for the journal.  Not serialized.
+    // Names of sessions deleted since the last save.
+    private transient Set<String> removedSessions = new HashSet<>();
+    // Current and previous session names as of the last save.
+    private transient String savedCurrentSessionName = null;
+    private transient String savedPreviousSessionName = null;
+    // Bumped on every change to the map, the names, or any session in it.
+    private transient long modCount = 0;
+    // Sessions that were touched but turned out to be identical to
+    // what was already saved, so were not written again.
+    private transient long skippedSessionWrites = 0;
+
+    // Lazy loading.  Not serialized.
+    // Sessions we only know by name so far.
+    private transient Set<String> unloadedSessions = new HashSet<>();
+    private transient SessionLoader loader = null;
+
+    // Session names by case folded name, and sorted.  Not serialized.  Built the
+    // first time it is needed, then kept up to date by putEntry and
+    // removeEntry.  setSessionMap drops it, JAXB hands us the map before
+    // filling it, so it is built again on the next lookup.
+    private transient SessionNameIndex nameIndex = null;
+
+    // Session names by file path.  Not serialized.  Built when first
+    // needed, then kept up to date as sessions come, go, load and
+    // change.  Sessions known by name only go in by the paths the
+    // loader has for them, they aren't loaded for it.
+    private transient SessionPathIndex pathIndex = null;
+
     /**
      * Interface
      * Map of session names to data.  Guaranteed to not be null.
+     * Loads every session not loaded yet.
      * @return Map<String, EditorSession>
      */
     public Map<String, EditorSession> getSessionMap() {
+        loadSessions(unloadedSessions);
         return sessionMap;
     }
 
@@ -55,6 +96,8 @@ public class SessionMap {
     @XmlElement
     public void setSessionMap(Map<String, EditorSession> sessionMap) {
         this.sessionMap = sessionMap;
+        nameIndex = null;
+        pathIndex = null;
     }
 
     /**
@@ -71,7 +114,10 @@ public class SessionMap {
      */
     @XmlAttribute
     public void setCurrentSessionName(String currentSessionName) {
-        this.currentSessionName = currentSessionName;
+        if (!Objects.equals(this.currentSessionName, currentSessionName)) {
+            this.currentSessionName = currentSessionName;
+            modCount++;
+        }
     }
 
     /**
@@ -88,7 +134,10 @@ public class SessionMap {
      */
     @XmlAttribute
     public void setPreviousSessionName(String previousSessionName) {
-        this.previousSessionName = previousSessionName;
+        if (!Objects.equals(this.previousSessionName, previousSessionName)) {
+            this.previousSessionName = previousSessionName;
+            modCount++;
+        }
     }
 
     /**
@@ -105,12 +154,16 @@ public class SessionMap {
      * null if null was passed in.
      */
     public EditorSession switchEditorSession(String sessionName) {
-        currentSessionName = sessionName;
+        setCurrentSessionName(sessionName);
         if (sessionName == null) {
             return null;
         }
-        if (sessionMap.get(sessionName) == null) {
-            sessionMap.put(sessionName, new EditorSession());
+        if (loadSession(sessionName) == null) {
+            EditorSession session = new EditorSession();
+            session.markNew();
+            session.setOwner(this);
+            putEntry(sessionName, session);
+            modCount++;
         }
         return sessionMap.get(sessionName);
     }
@@ -127,7 +180,7 @@ public class SessionMap {
         if (sessionName == null) {
             return null;
         }
-        return sessionMap.get(sessionName);
+        return loadSession(sessionName);
     }
 
     /**
@@ -140,7 +193,7 @@ public class SessionMap {
         if (currentSessionName == null) {
             return null;
         }
-        return sessionMap.get(currentSessionName);
+        return loadSession(currentSessionName);
     }
 
     /**
@@ -155,7 +208,7 @@ public class SessionMap {
             return;
         }
         deleteEditorSession(currentSessionName);
-        currentSessionName = null;
+        setCurrentSessionName(null);
     }
 
     /**
@@ -165,7 +218,325 @@ public class SessionMap {
      * @return
      */
     public void deleteEditorSession(String sessionName) {
-        sessionMap.remove(sessionName);
+        // No need to load a session just to throw it away.
+        unloadedSessions.remove(sessionName);
+        if (sessionMap.containsKey(sessionName)) {
+            removeEntry(sessionName);
+            removedSessions.add(sessionName);
+            modCount++;
+        }
+    }
+
+    /**
+     * Interface
+     * Put a session back under the given name, replacing whatever was
+     * there.  Used when replaying the journal. Does not count as a change.
+     * @param sessionName
+     * @param session
+     */
+    public void restoreEditorSession(String sessionName, EditorSession session) {
+        session.markSaved();
+        session.setOwner(this);
+        unloadedSessions.remove(sessionName);
+        putEntry(sessionName, session);
+    }
+
+    /**
+     * Interface
+     * Add a session by name only.  It will be fetched from the loader
+     * the first time it is asked for.  Does not count as a change.
+     * @param sessionName
+     */
+    public void addUnloadedSession(String sessionName) {
+        unloadedSessions.add(sessionName);
+        putEntry(sessionName, null);
+    }
+
+    /**
+     * Interface
+     * Where unloaded sessions come from.
+     * @param loader
+     */
+    public void setLoader(SessionLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Interface
+     * @param sessionName
+     * @return true if the session exists and has been loaded.
+     */
+    public Boolean isSessionLoaded(String sessionName) {
+        return sessionMap.get(sessionName) != null;
+    }
+
+    /**
+     * Get a session, loading it first if we only know its name.
+     * @param sessionName
+     * @return EditorSession or null if there is no such session.
+     */
+    private EditorSession loadSession(String sessionName) {
+        if (unloadedSessions.contains(sessionName)) {
+            loadSessions(Collections.singleton(sessionName));
+        }
+        EditorSession session = sessionMap.get(sessionName);
+        if (session != null) {
+            // Anyone holding it may change it.  We need to hear about that.
+            session.setOwner(this);
+        }
+        return session;
+    }
+
+    // All changes to sessionMap go thru here and removeEntry,
+    // so the name and path indexes keep up.
+    private void putEntry(String sessionName, EditorSession session) {
+        boolean isNewName = !sessionMap.containsKey(sessionName);
+        sessionMap.put(sessionName, session);
+        if (pathIndex != null) {
+            if (session == null) {
+                // Known by name only, paths() indexes it again before
+                // any lookup.
+                pathIndex.remove(sessionName);
+            } else {
+                pathIndex.add(sessionName, session);
+            }
+        }
+        if (isNewName && nameIndex != null) {
+            nameIndex.add(sessionName);
+        }
+    }
+
+    private void removeEntry(String sessionName) {
+        if (sessionMap.containsKey(sessionName)) {
+            sessionMap.remove(sessionName);
+            if (pathIndex != null) {
+                pathIndex.remove(sessionName);
+            }
+            if (nameIndex != null) {
+                nameIndex.remove(sessionName);
+            }
+        }
+    }
+
+    // The name index, built if missing.
+    private SessionNameIndex names() {
+        if (nameIndex == null) {
+            nameIndex = new SessionNameIndex(sessionMap.keySet());
+        }
+        return nameIndex;
+    }
+
+    // The path index, built if missing.  Loaded sessions go in as they
+    // are.  Sessions known by name only and not indexed yet go in by
+    // the paths the loader has on record, only the ones it has no
+    // record of get loaded.
+    private SessionPathIndex paths() {
+        if (pathIndex == null) {
+            pathIndex = new SessionPathIndex(sessionMap);
+            for (EditorSession session : sessionMap.values()) {
+                if (session != null) {
+                    session.setOwner(this);
+                }
+            }
+        }
+        Set<String> unindexed = new HashSet<>();
+        for (String name : unloadedSessions) {
+            if (!pathIndex.contains(name)) {
+                unindexed.add(name);
+            }
+        }
+        if (!unindexed.isEmpty()) {
+            Map<String, List<String>> known = (loader == null) ? Collections.emptyMap()
+                : loader.loadFilePaths(unindexed);
+            for (Map.Entry<String, List<String>> entry : known.entrySet()) {
+                if (unindexed.remove(entry.getKey())) {
+                    pathIndex.addPaths(entry.getKey(), entry.getValue());
+                }
+            }
+            loadSessions(unindexed);
+        }
+        return pathIndex;
+    }
+
+    /**
+     * Interface
+     * Which sessions hold the given file.  Snapshots count.
+     * @param fullPath
+     * @return Session names, sorted.  Empty if none.
+     */
+    public Set<String> getSessionsHolding(String fullPath) {
+        return paths().holding(fullPath);
+    }
+
+    /**
+     * Interface
+     * Which sessions hold the given file, or any file under the given
+     * folder.  "/p/a" finds "/p/a/b.java" but not "/p/ab.java".
+     * @param folder
+     * @return Session names, sorted.  Empty if none.
+     */
+    public Set<String> getSessionsHoldingUnder(String folder) {
+        return paths().holdingUnder(folder);
+    }
+
+    /**
+     * Interface
+     * Files or folders were moved or deleted in the workspace.  Every
+     * session holding a file at or under one of the paths follows the
+     * move, or drops the file.  Snapshots too.  Only sessions holding
+     * such a file are touched.
+     *
+     * @param moved Old full path to new full path, files or folders.
+     * @param deleted Full paths, files or folders.
+     * @return number of sessions changed.
+     */
+    public int relocateFiles(Map<String, String> moved, Set<String> deleted) {
+        if (moved.isEmpty() && deleted.isEmpty()) {
+            return 0;
+        }
+        SessionPathIndex index = paths();
+        // Per session, exact old path to new path, and exact deletes.
+        Map<String, Map<String, String>> movedBySession = new HashMap<>();
+        Map<String, Set<String>> deletedBySession = new HashMap<>();
+        for (Map.Entry<String, String> move : moved.entrySet()) {
+            String from = SessionPathIndex.normalize(move.getKey());
+            String to = SessionPathIndex.normalize(move.getValue());
+            for (Map.Entry<String, Set<String>> hit : index.under(from).entrySet()) {
+                // Same tail, new head.
+                String newPath = to + hit.getKey().substring(from.length());
+                for (String name : hit.getValue()) {
+                    movedBySession.computeIfAbsent(name, k -> new HashMap<>())
+                        .put(hit.getKey(), newPath);
+                }
+            }
+        }
+        for (String gone : deleted) {
+            for (Map.Entry<String, Set<String>> hit : index.under(gone).entrySet()) {
+                for (String name : hit.getValue()) {
+                    deletedBySession.computeIfAbsent(name, k -> new HashSet<>())
+                        .add(hit.getKey());
+                }
+            }
+        }
+        Set<String> names = new HashSet<>(movedBySession.keySet());
+        names.addAll(deletedBySession.keySet());
+        int changed = 0;
+        for (String name : names) {
+            EditorSession session = loadSession(name);
+            if (session != null && session.relocateFiles(
+                movedBySession.getOrDefault(name, Collections.emptyMap()),
+                deletedBySession.getOrDefault(name, Collections.emptySet()))) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Called by our sessions whenever they are touched.
+     * @param session The one touched.
+     */
+    void sessionTouched(EditorSession session) {
+        modCount++;
+        if (pathIndex != null) {
+            pathIndex.update(session);
+        }
+    }
+
+    /**
+     * Load the given unloaded sessions in one go.  A session the loader
+     * can't produce is dropped from memory but not recorded as
+     * removed, so it is still on disk next time.
+     * @param sessionNames
+     */
+    private void loadSessions(Set<String> sessionNames) {
+        if (sessionNames.isEmpty()) {
+            return;
+        }
+        Set<String> names = new HashSet<>(sessionNames);
+        Map<String, EditorSession> loaded = (loader == null) ? Collections.emptyMap()
+            : loader.loadSessions(names);
+        for (String name : names) {
+            unloadedSessions.remove(name);
+            EditorSession session = loaded.get(name);
+            if (session == null) {
+                removeEntry(name);
+            } else {
+                session.markSaved();
+                session.setOwner(this);
+                putEntry(name, session);
+            }
+        }
+    }
+
+    /**
+     * Interface
+     * Collect everything that changed since the last call and reset
+     * change tracking.  The caller is expected to persist the result.
+     * Changed sessions are copied, so the result may be written out
+     * on another thread while this map keeps changing.
+     * @return SessionChanges, never null but may be empty.
+     */
+    public SessionChanges takeChanges() {
+        SessionChanges changes = new SessionChanges();
+        for (String name : removedSessions) {
+            changes.addRemovedSession(name);
+        }
+        for (Map.Entry<String, EditorSession> entry : sessionMap.entrySet()) {
+            EditorSession session = entry.getValue();
+            // Unloaded sessions can't have changed.
+            if (session == null || !session.isTouched()) {
+                continue;
+            }
+            if (session.isChanged()) {
+                changes.addChangedSession(entry.getKey(), session.copy());
+            } else {
+                skippedSessionWrites++;
+            }
+        }
+        if (!Objects.equals(currentSessionName, savedCurrentSessionName)
+            || !Objects.equals(previousSessionName, savedPreviousSessionName)) {
+            changes.setPointers(currentSessionName, previousSessionName);
+        }
+        clearChanges();
+        return changes;
+    }
+
+    /**
+     * Interface
+     * Forget all pending changes.  Called after a load, or after
+     * the whole map was written out in one go.
+     */
+    public void clearChanges() {
+        for (EditorSession session : sessionMap.values()) {
+            if (session != null) {
+                session.markSaved();
+            }
+        }
+        removedSessions.clear();
+        savedCurrentSessionName = currentSessionName;
+        savedPreviousSessionName = previousSessionName;
+    }
+
+    /**
+     * Interface
+     * Bumped on every change to this map, its current and previous
+     * names, or any session that was handed out by it.  If it hasn't
+     * moved since the last save there is nothing to save.
+     * @return
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Interface
+     * Number of times a touched session was left out of a save because
+     * its content was identical to what was already saved.
+     * @return
+     */
+    public long getSkippedSessionWrites() {
+        return skippedSessionWrites;
     }
 
     /**
@@ -181,16 +552,59 @@ public class SessionMap {
     /**
      * Interface
      * Check to see if a given session name is already being used.
+     * Case is ignored.
      * @param someName
      * @return
      */
     public Boolean isNameInUse(String someName) {
-        Set<String> existingNames = getSessionNames();
-        for (String name : existingNames) {
-            if (someName.equalsIgnoreCase(name)) {
-                return true;
-            }
+        return names().find(someName) != null;
+    }
+
+    /**
+     * Interface
+     * Every session name in alphabetical order, for menus.
+     * Kept up to date as sessions come and go, so this is cheap.
+     * Shared, do not modify the array.
+     * @return String[]
+     */
+    public String[] getSortedSessionNames() {
+        return names().sortedNames();
+    }
+
+    /**
+     * Interface
+     * Session names starting with the given prefix, case counts, in order.
+     * A read only live view, copy it before adding or deleting sessions.
+     * @param prefix
+     * @return SortedSet<String>
+     */
+    public SortedSet<String> getSessionNamesStartingWith(String prefix) {
+        return names().startingWith(prefix);
+    }
+
+    /**
+     * Interface
+     * Session names from (inclusive) to (exclusive) in order.
+     * Same rules as getSessionNamesStartingWith.
+     * @param from
+     * @param to
+     * @return SortedSet<String>
+     */
+    public SortedSet<String> getSessionNamesBetween(String from, String to) {
+        return names().range(from, to);
+    }
+
+    /**
+     * Interface
+     * Find a session name ignoring case.
+     * @param someName
+     * @return The name as it is stored, someName itself if that is
+     * stored, or null if no name matches.
+     */
+    public String findSessionName(String someName) {
+        if (sessionMap.containsKey(someName)) {
+            return someName;
         }
-        return false;
+        return names().find(someName);
     }
 }
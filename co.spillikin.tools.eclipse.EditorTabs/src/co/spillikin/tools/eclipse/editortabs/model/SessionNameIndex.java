@@ -0,0 +1,162 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Session names keyed by a case folded form, so "is this name taken,
+ * ignoring case" is one hash lookup instead of a pass over every name.
+ * Also kept in sorted order, for menus and prefix searches, so nobody
+ * has to copy and sort every name to show a list.
+ *
+ * Folding maps each char thru upper then lower case, one char at a
+ * time.  That is exactly what String.equalsIgnoreCase compares, and
+ * does not depend on the default locale (no Turkish dotless i
+ * surprises).
+ *
+ * Two names can fold the same ("Work" and "WORK") if they were made
+ * before anyone checked.  The first one is kept in names, the rest in
+ * clashes, so removing one of them never loses the other.
+ *
+ * @author chris
+ *
+ */
+final class SessionNameIndex {
+
+    // Folded name to a real name.
+    private final Map<String, String> names = new HashMap<>();
+    // Folded name to further real names that fold the same.  Almost
+    // always empty.
+    private final Map<String, List<String>> clashes = new HashMap<>();
+    // Every name, in String order.
+    private final TreeSet<String> sorted = new TreeSet<>();
+    // sorted as an array, made when first asked for after a change.
+    private String[] snapshot = null;
+
+    /**
+     * @param sessionNames Names to start with.
+     */
+    SessionNameIndex(Collection<String> sessionNames) {
+        for (String name : sessionNames) {
+            add(name);
+        }
+    }
+
+    /**
+     * The key two names share if they are equal ignoring case.
+     * @param name
+     * @return folded name.
+     */
+    static String fold(String name) {
+        char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Add a name.  The caller makes sure it isn't there already.
+     * @param name
+     */
+    void add(String name) {
+        String key = fold(name);
+        if (names.containsKey(key)) {
+            clashes.computeIfAbsent(key, k -> new ArrayList<>(1)).add(name);
+        } else {
+            names.put(key, name);
+        }
+        sorted.add(name);
+        snapshot = null;
+    }
+
+    /**
+     * Remove a name.  Does nothing if it isn't there.
+     * @param name
+     */
+    void remove(String name) {
+        String key = fold(name);
+        String held = names.get(key);
+        if (held == null) {
+            return;
+        }
+        List<String> others = clashes.get(key);
+        if (held.equals(name)) {
+            if (others == null) {
+                names.remove(key);
+            } else {
+                names.put(key, others.remove(others.size() - 1));
+                if (others.isEmpty()) {
+                    clashes.remove(key);
+                }
+            }
+        } else if (others != null && others.remove(name)) {
+            if (others.isEmpty()) {
+                clashes.remove(key);
+            }
+        } else {
+            return;
+        }
+        sorted.remove(name);
+        snapshot = null;
+    }
+
+    /**
+     * @param name
+     * @return a name held that equals the given one ignoring case, or
+     * null if there is none.
+     */
+    String find(String name) {
+        return names.get(fold(name));
+    }
+
+    /**
+     * Every name in order.  The same array is handed out until a
+     * name is added or removed, so it must not be modified.
+     * @return String[]
+     */
+    String[] sortedNames() {
+        if (snapshot == null) {
+            snapshot = sorted.toArray(new String[sorted.size()]);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Names from (inclusive) to (exclusive), in order.  A live view,
+     * so copy it before changing the session map.
+     * @param from
+     * @param to
+     * @return SortedSet, unmodifiable.
+     */
+    SortedSet<String> range(String from, String to) {
+        return Collections.unmodifiableSortedSet(sorted.subSet(from, to));
+    }
+
+    /**
+     * Names starting with prefix, case counts, in order.
+     * Same rules as range.
+     * @param prefix
+     * @return SortedSet, unmodifiable.
+     */
+    SortedSet<String> startingWith(String prefix) {
+        return Collections.unmodifiableSortedSet(
+            sorted.subSet(prefix, true, prefix + Character.MAX_VALUE, true));
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Which sessions hold each file, by full path.  Kept in path order,
+ * so everything under a folder is one range of the map, found with
+ * one lookup instead of a pass over every file of every session.
+ *
+ * Kept up to date one session at a time as sessions are created,
+ * changed, loaded and deleted, see SessionMap.  A changed session is
+ * told apart by identity, since a session doesn't know its own name.
+ * A session that isn't loaded goes in by its paths alone (addPaths),
+ * it can't change until it is loaded, and then it is added again.
+ *
+ * Paths are normalized (see normalize) going in and coming out of
+ * queries, so "C:\a\b" and "C:/a/b/" are the same file.
+ *
+ * @author chris
+ *
+ */
+final class SessionPathIndex {
+
+    // Full path to the names of the sessions holding it.
+    private final TreeMap<String, Set<String>> sessionsByPath = new TreeMap<>();
+    // Session name to the paths it was last indexed with.
+    private final Map<String, Set<String>> pathsBySession = new HashMap<>();
+    // Indexed sessions to their names, and back.
+    private final Map<EditorSession, String> names = new IdentityHashMap<>();
+    private final Map<String, EditorSession> sessions = new HashMap<>();
+
+    /**
+     * @param sessions Sessions to start with, all loaded.
+     */
+    SessionPathIndex(Map<String, EditorSession> sessions) {
+        for (Map.Entry<String, EditorSession> entry : sessions.entrySet()) {
+            if (entry.getValue() != null) {
+                add(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * One way of writing each path.  Forward slashes, no trailing
+     * slash (unless that's all there is).
+     * @param path
+     * @return normalized path
+     */
+    static String normalize(String path) {
+        String p = path.replace('\\', '/');
+        while (p.length() > 1 && p.endsWith("/")) {
+            p = p.substring(0, p.length() - 1);
+        }
+        return p;
+    }
+
+    /**
+     * Index a session's files, replacing whatever was indexed under
+     * the name before.
+     * @param sessionName
+     * @param session
+     */
+    void add(String sessionName, EditorSession session) {
+        remove(sessionName);
+        Set<String> paths = new HashSet<>();
+        for (FileInfo fi : session.getStoredFileInfoList()) {
+            String path = normalize(fi.getFullPath());
+            if (paths.add(path)) {
+                sessionsByPath.computeIfAbsent(path, k -> new HashSet<>(2)).add(sessionName);
+            }
+        }
+        pathsBySession.put(sessionName, paths);
+        names.put(session, sessionName);
+        sessions.put(sessionName, session);
+    }
+
+    /**
+     * Index the paths of a session that isn't loaded, replacing
+     * whatever was indexed under the name before.
+     * @param sessionName
+     * @param fullPaths
+     */
+    void addPaths(String sessionName, Collection<String> fullPaths) {
+        remove(sessionName);
+        Set<String> paths = new HashSet<>();
+        for (String fullPath : fullPaths) {
+            String path = normalize(fullPath);
+            if (paths.add(path)) {
+                sessionsByPath.computeIfAbsent(path, k -> new HashSet<>(2)).add(sessionName);
+            }
+        }
+        pathsBySession.put(sessionName, paths);
+    }
+
+    /**
+     * @param sessionName
+     * @return true if the session is indexed, loaded or not.
+     */
+    boolean contains(String sessionName) {
+        return pathsBySession.containsKey(sessionName);
+    }
+
+    /**
+     * Forget a session.
+     * @param sessionName
+     */
+    void remove(String sessionName) {
+        EditorSession session = sessions.remove(sessionName);
+        if (session != null && sessionName.equals(names.get(session))) {
+            names.remove(session);
+        }
+        Set<String> paths = pathsBySession.remove(sessionName);
+        if (paths == null) {
+            return;
+        }
+        for (String path : paths) {
+            Set<String> holders = sessionsByPath.get(path);
+            if (holders != null) {
+                holders.remove(sessionName);
+                if (holders.isEmpty()) {
+                    sessionsByPath.remove(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * A session's files changed.  Only the paths that came or went
+     * are touched.  A session we never indexed is ignored.
+     * @param session
+     */
+    void update(EditorSession session) {
+        String sessionName = names.get(session);
+        if (sessionName == null) {
+            return;
+        }
+        Set<String> oldPaths = pathsBySession.get(sessionName);
+        Set<String> newPaths = new HashSet<>();
+        for (FileInfo fi : session.getStoredFileInfoList()) {
+            newPaths.add(normalize(fi.getFullPath()));
+        }
+        if (newPaths.equals(oldPaths)) {
+            // Cursors moved, order changed, nothing for us.
+            return;
+        }
+        for (String path : oldPaths) {
+            if (!newPaths.contains(path)) {
+                Set<String> holders = sessionsByPath.get(path);
+                holders.remove(sessionName);
+                if (holders.isEmpty()) {
+                    sessionsByPath.remove(path);
+                }
+            }
+        }
+        for (String path : newPaths) {
+            if (!oldPaths.contains(path)) {
+                sessionsByPath.computeIfAbsent(path, k -> new HashSet<>(2)).add(sessionName);
+            }
+        }
+        pathsBySession.put(sessionName, newPaths);
+    }
+
+    /**
+     * @param fullPath
+     * @return Names of the sessions holding exactly this file, sorted.
+     */
+    Set<String> holding(String fullPath) {
+        Set<String> holders = sessionsByPath.get(normalize(fullPath));
+        return holders == null ? Collections.emptySet() : new TreeSet<>(holders);
+    }
+
+    /**
+     * @param folder
+     * @return Names of the sessions holding the given file or anything
+     * under it, sorted.
+     */
+    Set<String> holdingUnder(String folder) {
+        Set<String> holders = new TreeSet<>();
+        for (Set<String> names : under(folder).values()) {
+            holders.addAll(names);
+        }
+        return holders;
+    }
+
+    /**
+     * The file itself and everything under it, if it's a folder.
+     * "/p/a" covers "/p/a" and "/p/a/b" but not "/p/ab".
+     * @param fullPath
+     * @return Paths to session names, in path order.  A copy.
+     */
+    Map<String, Set<String>> under(String fullPath) {
+        String path = normalize(fullPath);
+        Map<String, Set<String>> found = new LinkedHashMap<>();
+        Set<String> exact = sessionsByPath.get(path);
+        if (exact != null) {
+            found.put(path, new HashSet<>(exact));
+        }
+        String folder = path.endsWith("/") ? path : path + "/";
+        for (Map.Entry<String, Set<String>> entry : sessionsByPath
+            .subMap(folder, true, folder + Character.MAX_VALUE, true).entrySet()) {
+            found.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        return found;
+    }
+
+    /**
+     * @return number of different paths held.
+     */
+    int size() {
+        return sessionsByPath.size();
+    }
+}
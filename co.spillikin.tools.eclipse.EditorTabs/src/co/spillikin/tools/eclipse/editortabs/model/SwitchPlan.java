@@ -0,0 +1,184 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * What it takes to go from the tabs open now to the tabs of another
+ * session, without closing anything both of them have open.
+ *
+ * Tabs only the open set has get closed, files only the session has
+ * get opened, and shared tabs stay as they are.  If the session keeps
+ * its files in order, the fewest shared tabs that have to move are
+ * worked out too.  The shared tabs that can stay put are the longest
+ * run already in the session's order (longest increasing subsequence
+ * of their places in the session), everything else moves.
+ *
+ * Works on paths only, so it knows nothing about editors.  See
+ * PluginUtil.switchFileList for the part that does.
+ *
+ * @author chris
+ *
+ */
+public final class SwitchPlan {
+
+    // Open now but not in the session.  Tab order.
+    private final List<String> toClose = new ArrayList<>();
+    // In the session but not open.  Session order.
+    private final List<FileInfo> toOpen = new ArrayList<>();
+    // Open and in the session.  Session order.
+    private final List<FileInfo> kept = new ArrayList<>();
+    // Kept tabs that are out of order.  Session order.
+    private final List<FileInfo> toMove = new ArrayList<>();
+
+    /**
+     * Interface
+     * Plan a switch.
+     *
+     * @param openPaths Full paths of the tabs open now, in tab order.
+     * @param target The session's files, in the order it wants them.
+     * @param keepOrder true if shared tabs should end up in target order.
+     */
+    public SwitchPlan(List<String> openPaths, List<FileInfo> target, boolean keepOrder) {
+
+        // Place of each file in the session.
+        Map<String, Integer> rank = new HashMap<>(target.size() * 2);
+        for (int i = 0; i < target.size(); i++) {
+            rank.putIfAbsent(target.get(i).getFullPath(), i);
+        }
+        // Places of the shared tabs, in tab order.
+        List<Integer> sharedRanks = new ArrayList<>();
+        Set<String> open = new HashSet<>(openPaths.size() * 2);
+        for (String path : openPaths) {
+            if (!open.add(path)) {
+                // Open twice, the first tab counts.
+                continue;
+            }
+            Integer r = rank.get(path);
+            if (r == null) {
+                toClose.add(path);
+            } else {
+                sharedRanks.add(r);
+            }
+        }
+        for (FileInfo fi : target) {
+            if (open.contains(fi.getFullPath())) {
+                kept.add(fi);
+            } else {
+                toOpen.add(fi);
+            }
+        }
+        if (keepOrder) {
+            boolean[] inOrder = new boolean[target.size()];
+            for (int r : longestIncreasing(sharedRanks)) {
+                inOrder[r] = true;
+            }
+            for (int r : sharedRanks) {
+                if (!inOrder[r]) {
+                    inOrder[r] = true;
+                    toMove.add(target.get(r));
+                }
+            }
+            // Session order.
+            toMove.sort((a, b) -> Integer.compare(rank.get(a.getFullPath()),
+                rank.get(b.getFullPath())));
+        }
+    }
+
+    /**
+     * Interface
+     * Longest increasing subsequence, n log n.  tails[k] is where
+     * in values the smallest tail of an increasing run of k+1 ends,
+     * previous links each value to the one before it in its run.
+     * @param values No duplicates.
+     * @return the subsequence, values not positions.
+     */
+    public static List<Integer> longestIncreasing(List<Integer> values) {
+        int n = values.size();
+        int[] tails = new int[n];
+        int[] previous = new int[n];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            int v = values.get(i);
+            int lo = 0;
+            int hi = length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (values.get(tails[mid]) < v) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            previous[i] = lo > 0 ? tails[lo - 1] : -1;
+            tails[lo] = i;
+            if (lo == length) {
+                length++;
+            }
+        }
+        Integer[] run = new Integer[length];
+        for (int i = length - 1, at = length > 0 ? tails[length - 1] : -1; i >= 0; i--) {
+            run[i] = values.get(at);
+            at = previous[at];
+        }
+        List<Integer> result = new ArrayList<>(length);
+        Collections.addAll(result, run);
+        return result;
+    }
+
+    /**
+     * Interface
+     * @return Full paths of tabs to close.  Unmodifiable.
+     */
+    public List<String> getToClose() {
+        return Collections.unmodifiableList(toClose);
+    }
+
+    /**
+     * Interface
+     * @return Files to open.  Unmodifiable.
+     */
+    public List<FileInfo> getToOpen() {
+        return Collections.unmodifiableList(toOpen);
+    }
+
+    /**
+     * Interface
+     * @return Files already open, left alone.  Unmodifiable.
+     */
+    public List<FileInfo> getKept() {
+        return Collections.unmodifiableList(kept);
+    }
+
+    /**
+     * Interface
+     * Empty unless order was asked for.
+     * @return Kept files that are out of order.  Unmodifiable.
+     */
+    public List<FileInfo> getToMove() {
+        return Collections.unmodifiableList(toMove);
+    }
+
+    /**
+     * Interface
+     * @return true if the open tabs already are the session.
+     */
+    public boolean isNothingToDo() {
+        return toClose.isEmpty() && toOpen.isEmpty() && toMove.isEmpty();
+    }
+}
@@ -6,7 +6,12 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({ AlphaTest.class, BasicTest.class, EmptyListTest.class, NumbersTest.class,
-    SnapshotTest.class, UpdateTest.class })
+    SnapshotTest.class, UpdateTest.class, JournalTest.class, StreamTest.class,
+    LazyTest.class, SaveSchedulerTest.class, DirtyTest.class,
+    BinaryTest.class, ShardTest.class, SessionDiffTest.class,
+    NameIndexTest.class, SwitchPlanTest.class, PathResolverTest.class,
+    PathIndexTest.class, PathPoolTest.class,
+    SelectionTextTest.class, TrackerTest.class })
 public class AllTests {
 
 }
@@ -79,6 +79,27 @@ public class AlphaTest {
 
     }
 
+    // Asking again gives the same list, until something changes.
+    @Test
+    public void testCachedView() {
+        session = sessionMap.switchEditorSession("Session 1");
+        session.createEditorSessionData(true, false, fileInfoList, "selected thing");
+        List<FileInfo> fl = session.getFileInfoList();
+        Assert.assertSame(fl, session.getFileInfoList());
+
+        // Unsorting shows up straight away.
+        session.updateEditorSessionButtons(false, false);
+        fl = session.getFileInfoList();
+        Assert.assertEquals("c", fl.get(0).getFileName());
+        Assert.assertSame(fl, session.getFileInfoList());
+
+        // So does a new list.
+        List<FileInfo> newList = new ArrayList<>();
+        newList.add(new FileInfo("z", "zpath", 0, 0, 0, 0, null, true));
+        session.updateFilePathList(newList, "zpath");
+        Assert.assertEquals(1, session.getFileInfoList().size());
+    }
+
     // Runs after each test.
     @After
     public void tearDown() {
@@ -0,0 +1,182 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.BinaryBuilder;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+import co.spillikin.tools.eclipse.editortabs.util.StreamBuilder;
+
+/**
+ * A session must come back from its binary shard exactly as it went
+ * in, and Builder must still read the old whole binary file.
+ *
+ * @author chris
+ *
+ */
+public class BinaryTest {
+
+    // Session "Old", current, selected /p/a.java, one file a.java at
+    // offset 7 length 3.  Version 1.1.
+    private static final byte[] OLD_FILE = { 'E', 'S', 'D', 'B', 1,
+        // String table
+        3, 3, 'O', 'l', 'd', 9, '/', 'p', '/', 'a', '.', 'j', 'a', 'v', 'a',
+        6, 'a', '.', 'j', 'a', 'v', 'a',
+        // No company, author, workspace.  Version, current, previous.
+        0, 0, 0, 2, 2, 1, 0,
+        // One session, its body
+        1, 1, 10, 0, 2, 5, 1,
+        // Its file, flags say offset and length only
+        -59, 3, 2, 0, 14, 6 };
+
+    File dir = null;
+    EditorSessionsData data = null;
+
+    // Runs before each test.
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("binarytest").toFile();
+        data = new EditorSessionsData();
+        data.setWorkspaceName("/Users/someone/workspace");
+        SessionMap sessionMap = data.getSessionMap();
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        fileInfoList.add(new FileInfo("b.java", "/p/b.java", 1, 200000, -1, 4,
+            "if (a < b) {\r\n}", false));
+        fileInfoList.add(new FileInfo("a.java", "/p/a.java", null, null, null, null, null,
+            null, true));
+        fileInfoList.add(new FileInfo("\u00e9t\u00e9.java", "/p/\u00e9t\u00e9.java", 0, 0, 0,
+            0, "", true));
+        sessionMap.switchEditorSession("Tabs").createEditorSessionData(true, false,
+            fileInfoList, "/p/b.java");
+        // Same paths again in another session.
+        sessionMap.switchEditorSession("More").createEditorSessionData(false, true,
+            new ArrayList<>(fileInfoList), "/p/a.java");
+        sessionMap.switchEditorSession("Empty");
+        sessionMap.setPreviousSessionName("Tabs");
+    }
+
+    // Shard and back holds everything, nulls included.
+    @Test
+    public void testRoundTrip() throws IOException {
+        EditorSessionsData read = new EditorSessionsData();
+        read.setWorkspaceName(data.getWorkspaceName());
+        SessionMap sessionMap = data.getSessionMap();
+        for (String name : sessionMap.getSessionNames()) {
+            byte[] bytes = shard(sessionMap.getEditorSession(name));
+            read.getSessionMap().restoreEditorSession(name,
+                BinaryBuilder.readShard(ByteBuffer.wrap(bytes)));
+        }
+        read.getSessionMap().setCurrentSessionName(sessionMap.getCurrentSessionName());
+        read.getSessionMap().setPreviousSessionName(sessionMap.getPreviousSessionName());
+        Assert.assertArrayEquals(xml(data), xml(read));
+    }
+
+    // A whole model file from before the store still loads, for
+    // migration.  Written out by hand, nothing writes them any more.
+    @Test
+    public void testOldFile() throws IOException {
+        File file = new File(dir, "data");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(OLD_FILE);
+        }
+        EditorSessionsData read = Builder.load(file.getPath());
+        Assert.assertNull(read.getDataException());
+        Assert.assertEquals(Integer.valueOf(1), read.getVersionMinor());
+        SessionMap sessionMap = read.getSessionMap();
+        Assert.assertEquals("Old", sessionMap.getCurrentSessionName());
+        EditorSession old = sessionMap.getEditorSession("Old");
+        Assert.assertEquals("/p/a.java", old.getSelectedFile());
+        FileInfo fi = old.getStoredFileInfoList().get(0);
+        Assert.assertEquals("a.java", fi.getFileName());
+        Assert.assertEquals(Integer.valueOf(7), fi.getOffset());
+        Assert.assertEquals(Integer.valueOf(3), fi.getLength());
+        Assert.assertNull(fi.getStartLine());
+
+        // Cut short, an error, not a crash.
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(OLD_FILE, 0, OLD_FILE.length - 3);
+        }
+        Assert.assertNotNull(Builder.load(file.getPath()).getDataException());
+    }
+
+    // Cut short, or from the future.  Either way an error, not a crash.
+    @Test
+    public void testBroken() throws IOException {
+        byte[] bytes = shard(data.getSessionMap().getEditorSession("Tabs"));
+        try {
+            BinaryBuilder.readShard(ByteBuffer.wrap(bytes, 0, bytes.length / 2).slice());
+            Assert.fail("Read half a shard");
+        } catch (IOException e) {
+            // Expected
+        }
+        bytes[4] = 99;
+        try {
+            BinaryBuilder.readShard(ByteBuffer.wrap(bytes));
+            Assert.fail("Read a shard from the future");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    // Counts and lengths that don't fit the file are errors too, not
+    // huge allocations or a NegativeArraySizeException.
+    @Test
+    public void testBadCounts() {
+        // String table count of -1, then of about 268 million.
+        byte[][] broken = { { 'E', 'S', 'D', 'B', 1, -1, -1, -1, -1, 0x0F },
+            { 'E', 'S', 'D', 'B', 1, -1, -1, -1, 0x7F },
+            // One string, said to be 100 bytes long.
+            { 'E', 'S', 'D', 'S', 1, 1, 100, 'x' },
+            // No strings, null label and selection, a million files.
+            { 'E', 'S', 'D', 'S', 1, 0, 0, 0, 0, -128, -124, 61 } };
+        for (byte[] bytes : broken) {
+            try {
+                if (bytes[3] == 'S') {
+                    BinaryBuilder.readShard(ByteBuffer.wrap(bytes));
+                } else {
+                    BinaryBuilder.read(ByteBuffer.wrap(bytes));
+                }
+                Assert.fail("Read a broken file");
+            } catch (IOException e) {
+                // Expected
+            }
+        }
+    }
+
+    private static byte[] shard(EditorSession session) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryBuilder.writeShard(session, bytes);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] xml(EditorSessionsData sessionsData) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StreamBuilder.write(sessionsData, bytes);
+        return bytes.toByteArray();
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+}
@@ -0,0 +1,81 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+
+/**
+ * Not a unit test.  Run as a Java application.
+ *
+ * Compares cold (first call, JAXBContext built from scratch) and
+ * warm (cached context and marshallers) save and load latency
+ * of Builder for a few store sizes.
+ *
+ * @author chris
+ *
+ */
+public class BuilderBenchmark {
+
+    private static final int[] SESSION_COUNTS = { 10, 1000, 50000 };
+    private static final int FILES_PER_SESSION = 5;
+    private static final int WARM_RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("builderbench").toFile();
+        File file = new File(dir, "sessionData.xml");
+
+        System.out.println("sessions   cold save   warm save   cold load   warm load  (ms)");
+        for (int count : SESSION_COUNTS) {
+            EditorSessionsData data = makeData(count);
+
+            Builder.unitTestClearCache();
+            long coldSave = time(() -> Builder.save(data, file.getPath()));
+            long warmSave = Long.MAX_VALUE;
+            for (int i = 0; i < WARM_RUNS; i++) {
+                warmSave = Math.min(warmSave, time(() -> Builder.save(data, file.getPath())));
+            }
+
+            Builder.unitTestClearCache();
+            long coldLoad = time(() -> Builder.load(file.getPath()));
+            long warmLoad = Long.MAX_VALUE;
+            for (int i = 0; i < WARM_RUNS; i++) {
+                warmLoad = Math.min(warmLoad, time(() -> Builder.load(file.getPath())));
+            }
+
+            System.out.println(String.format("%8d  %10.1f  %10.1f  %10.1f  %10.1f", count,
+                coldSave / 1e6, warmSave / 1e6, coldLoad / 1e6, warmLoad / 1e6));
+        }
+        file.delete();
+        dir.delete();
+    }
+
+    // A store with the given number of sessions, a few files each.
+    static EditorSessionsData makeData(int sessionCount) {
+        EditorSessionsData data = new EditorSessionsData();
+        SessionMap sessionMap = data.getSessionMap();
+        for (int s = 0; s < sessionCount; s++) {
+            List<FileInfo> fileInfoList = new ArrayList<>();
+            for (int f = 0; f < FILES_PER_SESSION; f++) {
+                String name = "File" + f + ".java";
+                fileInfoList.add(new FileInfo(name, "/project/src/pkg" + s + "/" + name, f * 10,
+                    f * 10 + 2, f * 400, 12, "selection", false));
+            }
+            sessionMap.switchEditorSession("Session " + s).createEditorSessionData(false, false,
+                fileInfoList, fileInfoList.get(0).getFullPath());
+        }
+        return data;
+    }
+
+    static long time(Runnable r) {
+        long start = System.nanoTime();
+        r.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,96 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionChanges;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+/**
+ * Only what really changed gets saved.  Handlers that run but leave
+ * things as they were (dialog cancelled, same tabs still open) must
+ * not cause a write.
+ *
+ * @author chris
+ *
+ */
+public class DirtyTest {
+
+    EditorSessionsData data = null;
+    SessionMap sessionMap = null;
+    EditorSession session = null;
+
+    // Runs before each test.
+    // One saved session, current.
+    @Before
+    public void setup() {
+        data = new EditorSessionsData();
+        sessionMap = data.getSessionMap();
+        session = sessionMap.switchEditorSession("Session 1");
+        session.createEditorSessionData(false, false, makeList("apath"), "apath");
+        SessionChanges changes = sessionMap.takeChanges();
+        Assert.assertEquals(1, changes.getChangedSessions().size());
+        Assert.assertTrue(changes.getPointersChanged());
+    }
+
+    // Nothing touched, nothing counted.
+    @Test
+    public void testUntouched() {
+        long modCount = data.getModCount();
+        sessionMap.getEditorSession("Session 1");
+        sessionMap.switchEditorSession("Session 1");
+        Assert.assertEquals(modCount, data.getModCount());
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+    }
+
+    // Touched, but same content.  Skipped and counted.
+    @Test
+    public void testSameContent() {
+        long modCount = data.getModCount();
+        session.updateEditorSessionButtons(false, false);
+        // A new list with the same files in it.
+        session.updateFilePathList(makeList("apath"), "apath");
+        Assert.assertNotEquals(modCount, data.getModCount());
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+        Assert.assertEquals(1, sessionMap.getSkippedSessionWrites());
+    }
+
+    // A real change is saved, and then not again.
+    @Test
+    public void testRealChange() {
+        session.updateFilePathList(makeList("bpath"), "bpath");
+        SessionChanges changes = sessionMap.takeChanges();
+        Assert.assertEquals(1, changes.getChangedSessions().size());
+        Assert.assertFalse(changes.getPointersChanged());
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+
+        // Changed and changed back is no change.
+        session.updateEditorSessionButtons(true, false);
+        session.updateEditorSessionButtons(false, false);
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+    }
+
+    // Moving current away and back is no change either.
+    @Test
+    public void testPointers() {
+        sessionMap.setCurrentSessionName("Session 2");
+        sessionMap.setCurrentSessionName("Session 1");
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+        sessionMap.setPreviousSessionName("Session 1");
+        Assert.assertTrue(sessionMap.takeChanges().getPointersChanged());
+    }
+
+    private static List<FileInfo> makeList(String path) {
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        fileInfoList.add(new FileInfo("name", path, 1, 2, 3, 4, "text", false));
+        return fileInfoList;
+    }
+
+}
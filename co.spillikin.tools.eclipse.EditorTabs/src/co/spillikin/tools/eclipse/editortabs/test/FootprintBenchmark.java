@@ -0,0 +1,89 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.lang.management.ManagementFactory;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfoXml;
+
+/**
+ * Not a unit test.  Run as a Java application.
+ *
+ * Heap kept per file entry, compact FileInfo against the boxed layout
+ * it used to have (which FileInfoXml still has).  Paths and names are
+ * shared in both cases, so only the entries themselves are counted.
+ * Offsets and lines are past 127 so their Integers aren't the cached
+ * ones, as in any real file.  Run with a fixed heap (-Xms = -Xmx)
+ * for steadier numbers.
+ *
+ * @author chris
+ *
+ */
+public class FootprintBenchmark {
+
+    private static final int ENTRIES = 100000;
+    private static final int DISTINCT_PATHS = 1000;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) {
+        String[] paths = new String[DISTINCT_PATHS];
+        for (int i = 0; i < DISTINCT_PATHS; i++) {
+            paths[i] = "/project/src/pkg" + (i % 50) + "/File" + i + ".java";
+        }
+        // The first rounds settle the heap (class loading, the paths
+        // going into the pool), only the last is reported.
+        long[] bytes = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            bytes = measure(paths);
+            // Clear out this round before the next one starts counting.
+            heapUsed();
+        }
+
+        System.out.println(String.format("%d entries, %d distinct paths", ENTRIES,
+            DISTINCT_PATHS));
+        System.out.println(String.format("boxed    %6d bytes per entry", bytes[1] / ENTRIES));
+        System.out.println(String.format("compact  %6d bytes per entry", bytes[0] / ENTRIES));
+    }
+
+    // { compact bytes kept, boxed bytes kept }.  Everything made here
+    // is garbage once we return, ready for the next round.
+    private static long[] measure(String[] paths) {
+        long before = heapUsed();
+        FileInfo[] compact = makeCompact(paths, ENTRIES);
+        long compactBytes = heapUsed() - before;
+
+        before = heapUsed();
+        FileInfoXml[] boxed = makeBoxed(compact);
+        long boxedBytes = heapUsed() - before;
+        // Keep both alive until measured.
+        if (compact.length != boxed.length) {
+            throw new IllegalStateException();
+        }
+        return new long[] { compactBytes, boxedBytes };
+    }
+
+    private static FileInfo[] makeCompact(String[] paths, int count) {
+        FileInfo[] entries = new FileInfo[count];
+        for (int i = 0; i < count; i++) {
+            String path = paths[i % paths.length];
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            int line = 200 + i % 5000;
+            entries[i] = new FileInfo(name, path, line, line, line * 40, 0, null, true);
+        }
+        return entries;
+    }
+
+    private static FileInfoXml[] makeBoxed(FileInfo[] compact) {
+        FileInfoXml[] entries = new FileInfoXml[compact.length];
+        for (int i = 0; i < compact.length; i++) {
+            entries[i] = new FileInfoXml(compact[i]);
+        }
+        return entries;
+    }
+
+    private static long heapUsed() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,88 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.PathPool;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+
+/**
+ * Not a unit test.  Run as a Java application.
+ *
+ * Compares heap use of the JAXB and streaming (StreamBuilder) paths
+ * for save and load.  For each we report bytes allocated by this
+ * thread and the peak heap over what was live before the call.
+ * Needs a HotSpot based JVM for per thread allocation counts.
+ *
+ * @author chris
+ *
+ */
+public class HeapBenchmark {
+
+    private static final int[] SESSION_COUNTS = { 1000, 10000, 50000 };
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        File dir = Files.createTempDirectory("heapbench").toFile();
+        String path = new File(dir, "sessionData.xml").getPath();
+
+        // Warm up both paths so class loading and the JAXBContext
+        // don't end up in the numbers.
+        EditorSessionsData warm = BuilderBenchmark.makeData(100);
+        Builder.saveJaxb(warm, path);
+        Builder.loadJaxb(path);
+        Builder.save(warm, path);
+        Builder.load(path);
+
+        System.out.println("sessions  path    save alloc   save peak   load alloc   load peak  (KB)");
+        for (int count : SESSION_COUNTS) {
+            EditorSessionsData data = BuilderBenchmark.makeData(count);
+            long[] jaxbSave = measure(() -> Builder.saveJaxb(data, path));
+            long[] jaxbLoad = measure(() -> Builder.loadJaxb(path));
+            long[] streamSave = measure(() -> Builder.save(data, path));
+            long[] streamLoad = measure(() -> Builder.load(path));
+            print(count, "jaxb", jaxbSave, jaxbLoad);
+            print(count, "stream", streamSave, streamLoad);
+        }
+        // Every load above shared its paths thru the pool.
+        System.out.println(PathPool.report());
+        new File(path).delete();
+        dir.delete();
+    }
+
+    private static void print(int count, String name, long[] save, long[] load) {
+        System.out.println(String.format("%8d  %-6s  %10d  %10d  %10d  %10d", count, name,
+            save[0] / 1024, save[1] / 1024, load[0] / 1024, load[1] / 1024));
+    }
+
+    // { bytes allocated, peak heap above the starting point }
+    private static long[] measure(Runnable r) {
+        System.gc();
+        long before = heapUsed();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        long thread = Thread.currentThread().getId();
+        long allocated = threadBean.getThreadAllocatedBytes(thread);
+        r.run();
+        allocated = threadBean.getThreadAllocatedBytes(thread) - allocated;
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return new long[] { allocated, Math.max(0, peak - before) };
+    }
+
+    private static long heapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,140 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.SessionJournal;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.MANIFEST_FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SHARD_DIRECTORY;
+
+/**
+ * Make sure whatever we append to the journal comes back
+ * when the plugin starts up again.
+ *
+ * @author chris
+ *
+ */
+public class JournalTest {
+
+    File dir = null;
+    String path = null;
+    List<FileInfo> fileInfoList = new ArrayList<>();
+
+    // Runs before each test.
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("journaltest").toFile();
+        path = new File(dir, FILENAME).getPath();
+        fileInfoList.add(new FileInfo("c", "cpath", 1, 2, 3, 4, "text", false));
+        fileInfoList.add(new FileInfo("a", "apath", 0, 0, 0, 0, null, true));
+    }
+
+    // Sessions and current / previous survive a restart.
+    @Test
+    public void testReplay() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        SessionMap sessionMap = journal.load().getSessionMap();
+        sessionMap.switchEditorSession("Session 1");
+        sessionMap.switchEditorSession("Session 2").createEditorSessionData(true, false,
+            fileInfoList, "cpath");
+        sessionMap.setPreviousSessionName("Session 1");
+        journal.append(sessionMap.takeChanges());
+        journal.close();
+
+        // "Restart"
+        sessionMap = new SessionJournal(path).load().getSessionMap();
+        Assert.assertEquals(2, sessionMap.getSessionNames().size());
+        Assert.assertEquals("Session 2", sessionMap.getCurrentSessionName());
+        Assert.assertEquals("Session 1", sessionMap.getPreviousSessionName());
+        EditorSession session = sessionMap.getCurrentEditorSession();
+        Assert.assertTrue(session.getKeepAlphabetical());
+        Assert.assertEquals("cpath", session.getSelectedFile());
+        Assert.assertEquals(2, session.getFileInfoList().size());
+        Assert.assertEquals("a", session.getFileInfoList().get(0).getFileName());
+        Assert.assertEquals(Integer.valueOf(3),
+            session.getFileInfoList().get(1).getOffset());
+    }
+
+    // Deletes are journaled too, and nothing changed means nothing written.
+    @Test
+    public void testRemove() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        SessionMap sessionMap = journal.load().getSessionMap();
+        sessionMap.switchEditorSession("Session 1");
+        sessionMap.switchEditorSession("Session 2");
+        journal.append(sessionMap.takeChanges());
+        sessionMap.deleteCurrentEditorSession();
+        journal.append(sessionMap.takeChanges());
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+        journal.close();
+
+        sessionMap = new SessionJournal(path).load().getSessionMap();
+        Assert.assertEquals(1, sessionMap.getSessionNames().size());
+        Assert.assertNull(sessionMap.getCurrentSessionName());
+        Assert.assertNotNull(sessionMap.getEditorSession("Session 1"));
+    }
+
+    // A half written record at the end is dropped, not fatal.
+    @Test
+    public void testTornRecord() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        SessionMap sessionMap = journal.load().getSessionMap();
+        sessionMap.switchEditorSession("Session 1");
+        journal.append(sessionMap.takeChanges());
+        journal.close();
+        try (FileOutputStream out = new FileOutputStream(path + JOURNAL_SUFFIX, true)) {
+            out.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 });
+        }
+
+        EditorSessionsData data = new SessionJournal(path).load();
+        Assert.assertNull(data.getDataException());
+        Assert.assertEquals("Session 1", data.getSessionMap().getCurrentSessionName());
+    }
+
+    // A full checkpoint replaces the journal.
+    @Test
+    public void testCheckpoint() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        EditorSessionsData data = journal.load();
+        data.getSessionMap().switchEditorSession("Session 1");
+        journal.checkpoint(data);
+        journal.close();
+        Assert.assertTrue(new File(new File(dir, SHARD_DIRECTORY), MANIFEST_FILENAME).exists());
+        Assert.assertFalse(new File(path + JOURNAL_SUFFIX).exists());
+
+        data = new SessionJournal(path).load();
+        Assert.assertEquals("Session 1", data.getSessionMap().getCurrentSessionName());
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            // The sessions directory.
+            if (f.isDirectory()) {
+                for (File shard : f.listFiles()) {
+                    shard.delete();
+                }
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+
+}
@@ -0,0 +1,118 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+import co.spillikin.tools.eclipse.editortabs.util.SessionJournal;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.FILENAME;
+
+/**
+ * At startup only session names are read.  Sessions must still
+ * behave as if they had been there all along.
+ *
+ * @author chris
+ *
+ */
+public class LazyTest {
+
+    File dir = null;
+    String path = null;
+
+    // Runs before each test.
+    // Write a checkpoint with three sessions.
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("lazytest").toFile();
+        path = new File(dir, FILENAME).getPath();
+        SessionJournal journal = new SessionJournal(path);
+        EditorSessionsData data = journal.load();
+        SessionMap sessionMap = data.getSessionMap();
+        for (String name : new String[] { "One", "Two", "Three" }) {
+            List<FileInfo> fileInfoList = new ArrayList<>();
+            fileInfoList.add(new FileInfo(name + ".java", "/p/" + name, 0, 0, 0, 0, null, true));
+            sessionMap.switchEditorSession(name).createEditorSessionData(false, false,
+                fileInfoList, "/p/" + name);
+        }
+        sessionMap.setPreviousSessionName("One");
+        journal.checkpoint(data);
+        journal.close();
+    }
+
+    // Names and pointers come back, bodies wait until asked for.
+    @Test
+    public void testLoadOnDemand() {
+        SessionMap sessionMap = new SessionJournal(path).load().getSessionMap();
+        Assert.assertEquals(3, sessionMap.getSessionNames().size());
+        Assert.assertEquals("Three", sessionMap.getCurrentSessionName());
+        Assert.assertEquals("One", sessionMap.getPreviousSessionName());
+        Assert.assertFalse(sessionMap.isSessionLoaded("One"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("Two"));
+
+        EditorSession session = sessionMap.getEditorSession("Two");
+        Assert.assertTrue(sessionMap.isSessionLoaded("Two"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("One"));
+        Assert.assertEquals("/p/Two", session.getSelectedFile());
+        Assert.assertEquals("Two.java", session.getFileInfoList().get(0).getFileName());
+
+        // Switching to an existing session loads it, doesn't replace it.
+        session = sessionMap.switchEditorSession("One");
+        Assert.assertEquals("/p/One", session.getSelectedFile());
+        // Loading is not a change.
+        Assert.assertTrue(sessionMap.takeChanges().getChangedSessions().isEmpty());
+    }
+
+    // Sessions never loaded are still deleted, saved and exported properly.
+    @Test
+    public void testUnloadedSessions() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        EditorSessionsData data = journal.load();
+        SessionMap sessionMap = data.getSessionMap();
+        sessionMap.deleteEditorSession("Two");
+        Assert.assertFalse(sessionMap.getSessionNames().contains("Two"));
+        journal.append(sessionMap.takeChanges());
+        journal.close();
+
+        data = new SessionJournal(path).load();
+        sessionMap = data.getSessionMap();
+        Assert.assertEquals(2, sessionMap.getSessionNames().size());
+        Assert.assertFalse(sessionMap.isSessionLoaded("One"));
+
+        // Export has to write every session in full.
+        String exportPath = new File(dir, "export.xml").getPath();
+        Builder.save(data, exportPath);
+        sessionMap = Builder.load(exportPath).getSessionMap();
+        Assert.assertEquals(2, sessionMap.getSessionNames().size());
+        Assert.assertEquals("/p/Three",
+            sessionMap.getEditorSession("Three").getSelectedFile());
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            // The sessions directory.
+            if (f.isDirectory()) {
+                for (File shard : f.listFiles()) {
+                    shard.delete();
+                }
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+
+}
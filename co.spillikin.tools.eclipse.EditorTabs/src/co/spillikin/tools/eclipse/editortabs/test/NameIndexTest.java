@@ -0,0 +1,116 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+/**
+ * Name lookups ignoring case have to keep up with every way
+ * sessions come and go.
+ *
+ * @author chris
+ *
+ */
+public class NameIndexTest {
+
+    SessionMap sessionMap = null;
+
+    // Runs before each test.
+    @Before
+    public void setup() {
+        sessionMap = new SessionMap();
+        sessionMap.switchEditorSession("Work");
+        sessionMap.switchEditorSession("Play");
+    }
+
+    @Test
+    public void testInUse() {
+        Assert.assertTrue(sessionMap.isNameInUse("work"));
+        Assert.assertTrue(sessionMap.isNameInUse("PLAY"));
+        Assert.assertFalse(sessionMap.isNameInUse("Sleep"));
+        Assert.assertEquals("Work", sessionMap.findSessionName("wORK"));
+        Assert.assertNull(sessionMap.findSessionName("Sleep"));
+
+        sessionMap.deleteEditorSession("Work");
+        Assert.assertFalse(sessionMap.isNameInUse("work"));
+        sessionMap.switchEditorSession("Sleep");
+        Assert.assertTrue(sessionMap.isNameInUse("sleep"));
+    }
+
+    // Two names that only differ in case.  Deleting one keeps the other.
+    @Test
+    public void testClash() {
+        sessionMap.switchEditorSession("WORK");
+        sessionMap.deleteEditorSession("Work");
+        Assert.assertEquals("WORK", sessionMap.findSessionName("work"));
+        sessionMap.deleteEditorSession("WORK");
+        Assert.assertFalse(sessionMap.isNameInUse("work"));
+    }
+
+    // Names that arrive thru a load or the journal count too.
+    @Test
+    public void testLoaded() {
+        Assert.assertTrue(sessionMap.isNameInUse("play"));
+        sessionMap.addUnloadedSession("Later");
+        sessionMap.restoreEditorSession("Restored", sessionMap.getEditorSession("Play"));
+        Assert.assertTrue(sessionMap.isNameInUse("LATER"));
+        Assert.assertTrue(sessionMap.isNameInUse("restored"));
+
+        Map<String, EditorSession> replaced = new HashMap<>();
+        replaced.put("Replaced", null);
+        sessionMap.setSessionMap(replaced);
+        Assert.assertFalse(sessionMap.isNameInUse("play"));
+        Assert.assertTrue(sessionMap.isNameInUse("replaced"));
+    }
+
+    // Sorted names and prefix searches follow adds and deletes.
+    @Test
+    public void testSorted() {
+        sessionMap.switchEditorSession("Workshop");
+        Assert.assertArrayEquals(new String[] { "Play", "Work", "Workshop" },
+            sessionMap.getSortedSessionNames());
+        String[] before = sessionMap.getSortedSessionNames();
+        Assert.assertSame(before, sessionMap.getSortedSessionNames());
+        Assert.assertEquals(2, sessionMap.getSessionNamesStartingWith("Work").size());
+        Assert.assertEquals("Play", sessionMap.getSessionNamesBetween("A", "Q").first());
+
+        sessionMap.deleteEditorSession("Work");
+        Assert.assertArrayEquals(new String[] { "Play", "Workshop" },
+            sessionMap.getSortedSessionNames());
+        Assert.assertEquals(1, sessionMap.getSessionNamesStartingWith("Work").size());
+        // Old snapshot untouched.
+        Assert.assertEquals(3, before.length);
+    }
+
+    // One name goes, another comes, same count.  The index follows.
+    @Test
+    public void testSwapped() {
+        Assert.assertTrue(sessionMap.isNameInUse("work"));
+        sessionMap.deleteEditorSession("Work");
+        sessionMap.switchEditorSession("Sleep");
+        Assert.assertFalse(sessionMap.isNameInUse("work"));
+        Assert.assertEquals("Sleep", sessionMap.findSessionName("SLEEP"));
+        Assert.assertArrayEquals(new String[] { "Play", "Sleep" },
+            sessionMap.getSortedSessionNames());
+    }
+
+    // Folding doesn't depend on the default locale.
+    @Test
+    public void testTurkish() {
+        Locale saved = Locale.getDefault();
+        try {
+            Locale.setDefault(new Locale("tr", "TR"));
+            sessionMap.switchEditorSession("FILE");
+            Assert.assertTrue(sessionMap.isNameInUse("file"));
+        } finally {
+            Locale.setDefault(saved);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionLoader;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+/**
+ * Sessions follow files and folders that are moved, and drop the
+ * ones that are deleted.  The index from path to session keeps up
+ * with sessions as they come, go and change.
+ *
+ * @author chris
+ *
+ */
+public class PathIndexTest {
+
+    SessionMap sessionMap = null;
+
+    // Runs before each test.
+    @Before
+    public void setup() {
+        sessionMap = new SessionMap();
+        EditorSession work = sessionMap.switchEditorSession("Work");
+        work.createEditorSessionData(false, false,
+            files("/p/a/One.java", "/p/a/b/Two.java", "/p/a-x/Three.java"), "/p/a/One.java");
+        // Snapshots follow too.
+        EditorSession play = sessionMap.switchEditorSession("Play");
+        play.createEditorSessionData(false, true, files("/p/a/b/Two.java", "/q/Four.java"),
+            "/q/Four.java");
+    }
+
+    // A folder moves, everything under it follows.  Not its neighbour.
+    @Test
+    public void testMoveFolder() {
+        Map<String, String> moved = Collections.singletonMap("/p/a", "/r/z");
+        Assert.assertEquals(2, sessionMap.relocateFiles(moved, Collections.emptySet()));
+
+        EditorSession work = sessionMap.getEditorSession("Work");
+        Assert.assertEquals(paths("/r/z/One.java", "/r/z/b/Two.java", "/p/a-x/Three.java"),
+            paths(work));
+        Assert.assertEquals("/r/z/One.java", work.getSelectedFile());
+        Assert.assertEquals("One.java", work.getStoredFileInfoList().get(0).getFileName());
+
+        EditorSession play = sessionMap.getEditorSession("Play");
+        Assert.assertEquals(paths("/r/z/b/Two.java", "/q/Four.java"), paths(play));
+        Assert.assertEquals("/q/Four.java", play.getSelectedFile());
+    }
+
+    // A file is renamed, its cursor comes along.
+    @Test
+    public void testRenameFile() {
+        long before = sessionMap.getModCount();
+        Map<String, String> moved = Collections.singletonMap("/q/Four.java", "/q/Five.java");
+        Assert.assertEquals(1, sessionMap.relocateFiles(moved, Collections.emptySet()));
+        Assert.assertTrue(sessionMap.getModCount() > before);
+
+        EditorSession play = sessionMap.getEditorSession("Play");
+        FileInfo fi = play.getStoredFileInfoList().get(1);
+        Assert.assertEquals("Five.java", fi.getFileName());
+        Assert.assertEquals("/q/Five.java", fi.getFullPath());
+        Assert.assertEquals(Integer.valueOf(7), fi.getOffset());
+        Assert.assertEquals("/q/Five.java", play.getSelectedFile());
+    }
+
+    // Backslash paths stay backslash paths when they move.
+    @Test
+    public void testMoveKeepsSeparators() {
+        sessionMap.switchEditorSession("Win").createEditorSessionData(false, false,
+            files("\\w\\a\\One.java", "\\w\\b\\Two.java"), "\\w\\a\\One.java");
+        Map<String, String> moved = Collections.singletonMap("/w/a", "/w/z");
+        Assert.assertEquals(1, sessionMap.relocateFiles(moved, Collections.emptySet()));
+        EditorSession win = sessionMap.getEditorSession("Win");
+        Assert.assertEquals(paths("\\w\\z\\One.java", "\\w\\b\\Two.java"), paths(win));
+        Assert.assertEquals("\\w\\z\\One.java", win.getSelectedFile());
+        Assert.assertEquals("One.java", win.getStoredFileInfoList().get(0).getFileName());
+    }
+
+    // Deleted files go, a deleted selected file is no longer selected.
+    @Test
+    public void testDelete() {
+        Set<String> deleted = Collections.singleton("/p/a/One.java");
+        Assert.assertEquals(1, sessionMap.relocateFiles(Collections.emptyMap(), deleted));
+        EditorSession work = sessionMap.getEditorSession("Work");
+        Assert.assertEquals(paths("/p/a/b/Two.java", "/p/a-x/Three.java"), paths(work));
+        Assert.assertNull(work.getSelectedFile());
+
+        // Nothing left to find, nothing changes.
+        long before = sessionMap.getModCount();
+        Assert.assertEquals(0, sessionMap.relocateFiles(Collections.emptyMap(), deleted));
+        Assert.assertEquals(before, sessionMap.getModCount());
+    }
+
+    // The index keeps up with sessions changed after it was built.
+    @Test
+    public void testAfterChange() {
+        sessionMap.relocateFiles(Collections.emptyMap(), Collections.singleton("/nothing"));
+        sessionMap.getEditorSession("Work").updateFilePathList(files("/s/Six.java"), null);
+        Set<String> deleted = Collections.singleton("/s");
+        Assert.assertEquals(1, sessionMap.relocateFiles(Collections.emptyMap(), deleted));
+        Assert.assertTrue(sessionMap.getEditorSession("Work").getStoredFileInfoList().isEmpty());
+    }
+
+    // Which sessions hold a file, or anything under a folder.
+    @Test
+    public void testQueries() {
+        Assert.assertEquals(names("Play", "Work"),
+            sessionMap.getSessionsHolding("/p/a/b/Two.java"));
+        Assert.assertEquals(names("Work"), sessionMap.getSessionsHolding("/p/a/One.java"));
+        Assert.assertTrue(sessionMap.getSessionsHolding("/p/a").isEmpty());
+        Assert.assertEquals(names("Play", "Work"), sessionMap.getSessionsHoldingUnder("/p/a/"));
+        Assert.assertEquals(names("Work"), sessionMap.getSessionsHoldingUnder("/p/a-x"));
+        Assert.assertEquals(names("Play"), sessionMap.getSessionsHoldingUnder("\\q"));
+        Assert.assertTrue(sessionMap.getSessionsHoldingUnder("/p/a/b/Two").isEmpty());
+    }
+
+    // Created, changed and deleted after the index was built.
+    @Test
+    public void testKeptUpToDate() {
+        Assert.assertEquals(names("Work"), sessionMap.getSessionsHolding("/p/a/One.java"));
+
+        sessionMap.switchEditorSession("Sleep").createEditorSessionData(false, false,
+            files("/p/a/One.java"), null);
+        Assert.assertEquals(names("Sleep", "Work"),
+            sessionMap.getSessionsHolding("/p/a/One.java"));
+
+        sessionMap.getEditorSession("Work").updateFilePathList(files("/s/Six.java"), null);
+        Assert.assertEquals(names("Sleep"), sessionMap.getSessionsHolding("/p/a/One.java"));
+        Assert.assertEquals(names("Work"), sessionMap.getSessionsHolding("/s/Six.java"));
+
+        sessionMap.deleteEditorSession("Sleep");
+        Assert.assertTrue(sessionMap.getSessionsHolding("/p/a/One.java").isEmpty());
+    }
+
+    // Sessions known by name only are loaded to answer.
+    @Test
+    public void testUnloaded() {
+        sessionMap.getSessionsHolding("/p/a/One.java");
+        sessionMap.setLoader(names -> Collections.singletonMap("Lazy", EditorSession
+            .fromStream("Lazy", false, false, null, files("/p/a/One.java"))));
+        sessionMap.addUnloadedSession("Lazy");
+        Assert.assertEquals(names("Lazy", "Work"),
+            sessionMap.getSessionsHolding("/p/a/One.java"));
+        Assert.assertTrue(sessionMap.isSessionLoaded("Lazy"));
+    }
+
+    // Sessions the loader has paths for are answered without loading.
+    // Only the ones something happens to get loaded.
+    @Test
+    public void testUnloadedByPath() {
+        sessionMap.setLoader(new SessionLoader() {
+            @Override
+            public Map<String, EditorSession> loadSessions(Set<String> sessionNames) {
+                Assert.assertEquals(Collections.singleton("Lazy"), sessionNames);
+                return Collections.singletonMap("Lazy", EditorSession.fromStream("Lazy",
+                    false, false, null, files("/p/a/One.java", "/z/Seven.java")));
+            }
+
+            @Override
+            public Map<String, List<String>> loadFilePaths(Set<String> sessionNames) {
+                Map<String, List<String>> known = new HashMap<>();
+                known.put("Lazy", paths("/p/a/One.java", "/z/Seven.java"));
+                known.put("Idle", paths("/z/Eight.java"));
+                return known;
+            }
+        });
+        sessionMap.addUnloadedSession("Lazy");
+        sessionMap.addUnloadedSession("Idle");
+        Assert.assertEquals(names("Lazy", "Work"),
+            sessionMap.getSessionsHolding("/p/a/One.java"));
+        Assert.assertEquals(names("Idle", "Lazy"), sessionMap.getSessionsHoldingUnder("/z"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("Lazy"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("Idle"));
+
+        Set<String> deleted = Collections.singleton("/z/Seven.java");
+        Assert.assertEquals(1, sessionMap.relocateFiles(Collections.emptyMap(), deleted));
+        Assert.assertTrue(sessionMap.isSessionLoaded("Lazy"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("Idle"));
+        Assert.assertEquals(names("Idle"), sessionMap.getSessionsHoldingUnder("/z"));
+    }
+
+    private static Set<String> names(String... names) {
+        return new TreeSet<>(Arrays.asList(names));
+    }
+
+    private static List<FileInfo> files(String... paths) {
+        List<FileInfo> list = new ArrayList<>();
+        for (String path : paths) {
+            String name = path.substring(path.lastIndexOf('/') + 1);
+            list.add(new FileInfo(name, path, 1, 1, 7, 0, null, true));
+        }
+        return list;
+    }
+
+    private static List<String> paths(String... paths) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, paths);
+        return list;
+    }
+
+    private static List<String> paths(EditorSession session) {
+        List<String> list = new ArrayList<>();
+        for (FileInfo fi : session.getStoredFileInfoList()) {
+            list.add(fi.getFullPath());
+        }
+        return list;
+    }
+}
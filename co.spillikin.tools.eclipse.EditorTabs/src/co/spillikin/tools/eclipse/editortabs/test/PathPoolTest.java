@@ -0,0 +1,75 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.PathPool;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+
+/**
+ * The same path in many sessions is one string, however the
+ * sessions came to be.
+ *
+ * @author chris
+ *
+ */
+public class PathPoolTest {
+
+    // Built separately, same string after.
+    @Test
+    public void testCapture() {
+        long saved = PathPool.getSavedBytes();
+        FileInfo a = new FileInfo(new String("A.java"), new String("/p/A.java"), 0, 0, 0, 0,
+            null, true);
+        FileInfo b = new FileInfo(new String("A.java"), new String("/p/A.java"), 0, 0, 0, 0,
+            null, true);
+        Assert.assertSame(a.getFullPath(), b.getFullPath());
+        Assert.assertSame(a.getFileName(), b.getFileName());
+        Assert.assertTrue(PathPool.getSavedBytes() > saved);
+        Assert.assertNull(PathPool.intern(null));
+    }
+
+    // Saved and loaded back, both readers, every session shares.
+    @Test
+    public void testLoad() throws IOException {
+        File dir = Files.createTempDirectory("pooltest").toFile();
+        String path = new File(dir, "sessionData.xml").getPath();
+        EditorSessionsData data = new EditorSessionsData();
+        SessionMap sessionMap = data.getSessionMap();
+        for (String name : new String[] { "One", "Two", "Three" }) {
+            List<FileInfo> fileInfoList = new ArrayList<>();
+            fileInfoList.add(new FileInfo("Same.java", "/p/Same.java", 0, 0, 0, 0, null, true));
+            sessionMap.switchEditorSession(name).createEditorSessionData(false, false,
+                fileInfoList, "/p/Same.java");
+        }
+        Builder.save(data, path);
+        checkShared(Builder.load(path));
+        Builder.saveJaxb(data, path);
+        checkShared(Builder.loadJaxb(path));
+        new File(path).delete();
+        dir.delete();
+    }
+
+    private void checkShared(EditorSessionsData loaded) {
+        String first = null;
+        for (EditorSession session : loaded.getSessionMap().getSessionMap().values()) {
+            String fullPath = session.getFileInfoList().get(0).getFullPath();
+            if (first == null) {
+                first = fullPath;
+            }
+            Assert.assertSame(first, fullPath);
+            Assert.assertSame(first, session.getSelectedFile());
+        }
+        Assert.assertNotNull(first);
+    }
+}
@@ -0,0 +1,119 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.util.PathResolver;
+import co.spillikin.tools.eclipse.editortabs.util.PathResolver.Kind;
+import co.spillikin.tools.eclipse.editortabs.util.PathResolver.Resolved;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.PATH_RESOLVE_THREADS;
+
+/**
+ * Files are checked several at a time, and a slow one doesn't hold
+ * up the rest for long, even when every thread is stuck.
+ *
+ * @author chris
+ *
+ */
+public class PathResolverTest {
+
+    // Slow files are checked side by side, results stay in order.
+    @Test
+    public void testParallel() throws Exception {
+        PathResolver resolver = new PathResolver(fi -> {
+            sleep(300);
+            return new Resolved(fi, Kind.EXTERNAL, null);
+        }, 5000);
+        List<FileInfo> files = files("a", "b", "c", "d");
+        long start = System.currentTimeMillis();
+        List<Resolved> resolved = resolver.resolve(files, null);
+        Assert.assertTrue(System.currentTimeMillis() - start < 1000);
+        for (int i = 0; i < files.size(); i++) {
+            Assert.assertSame(files.get(i), resolved.get(i).getFileInfo());
+            Assert.assertTrue(resolved.get(i).isFound());
+        }
+    }
+
+    // One that hangs times out, one that throws is missing.
+    @Test
+    public void testTimeoutAndFailure() throws Exception {
+        PathResolver resolver = new PathResolver(fi -> {
+            if (fi.getFileName().equals("hang")) {
+                sleep(5000);
+            }
+            if (fi.getFileName().equals("bad")) {
+                throw new IllegalStateException("bad");
+            }
+            return new Resolved(fi, Kind.WORKSPACE, null);
+        }, 200);
+        List<Resolved> resolved = resolver.resolve(files("hang", "bad", "ok"), null);
+        Assert.assertEquals(Kind.UNREACHABLE, resolved.get(0).getKind());
+        Assert.assertEquals(Kind.MISSING, resolved.get(1).getKind());
+        Assert.assertEquals(Kind.WORKSPACE, resolved.get(2).getKind());
+        Assert.assertFalse(resolved.get(0).isFound());
+    }
+
+    // More hung than there are threads.  The quick ones queued behind
+    // them still get checked, not timed out without ever running.
+    @Test
+    public void testMoreHungThanThreads() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        PathResolver resolver = new PathResolver(fi -> {
+            if (fi.getFileName().startsWith("hang")) {
+                // Like a dead mount, interrupting doesn't help.
+                boolean released = false;
+                while (!released) {
+                    try {
+                        released = release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        // keep hanging
+                    }
+                }
+            }
+            return new Resolved(fi, Kind.WORKSPACE, null);
+        }, 200);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < PATH_RESOLVE_THREADS + 2; i++) {
+            names.add("hang" + i);
+        }
+        for (int i = 0; i < 6; i++) {
+            names.add("ok" + i);
+        }
+        try {
+            List<Resolved> resolved = resolver.resolve(files(names.toArray(new String[0])),
+                null);
+            for (Resolved r : resolved) {
+                if (r.getFileInfo().getFileName().startsWith("hang")) {
+                    Assert.assertEquals(Kind.UNREACHABLE, r.getKind());
+                } else {
+                    Assert.assertEquals(Kind.WORKSPACE, r.getKind());
+                }
+            }
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<FileInfo> files(String... names) {
+        List<FileInfo> list = new ArrayList<>();
+        for (String name : names) {
+            list.add(new FileInfo(name, name + "path", 0, 0, 0, 0, null, true));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,115 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.SaveScheduler;
+import co.spillikin.tools.eclipse.editortabs.util.SessionJournal;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_SUFFIX;
+
+/**
+ * Saves now happen in the background.  What ends up on disk must
+ * still be what the model looked like when save was called.
+ *
+ * @author chris
+ *
+ */
+public class SaveSchedulerTest {
+
+    File dir = null;
+    String path = null;
+    SessionJournal journal = null;
+    SaveScheduler scheduler = null;
+    SessionMap sessionMap = null;
+    List<FileInfo> fileInfoList = new ArrayList<>();
+
+    // Runs before each test.
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("savetest").toFile();
+        path = new File(dir, FILENAME).getPath();
+        journal = new SessionJournal(path);
+        scheduler = new SaveScheduler(journal);
+        sessionMap = journal.load().getSessionMap();
+        fileInfoList.add(new FileInfo("a", "apath", 0, 0, 0, 0, null, true));
+    }
+
+    // Several saves, one flush.  Delete and recreate under the same
+    // name ends up as the recreated session.
+    @Test
+    public void testBurst() {
+        sessionMap.switchEditorSession("Session 1");
+        scheduler.schedule(sessionMap.takeChanges());
+        sessionMap.switchEditorSession("Session 2");
+        scheduler.schedule(sessionMap.takeChanges());
+        sessionMap.deleteEditorSession("Session 1");
+        scheduler.schedule(sessionMap.takeChanges());
+        sessionMap.switchEditorSession("Session 1").createEditorSessionData(true, false,
+            fileInfoList, "apath");
+        scheduler.schedule(sessionMap.takeChanges());
+        scheduler.flush(1000);
+        journal.close();
+
+        sessionMap = new SessionJournal(path).load().getSessionMap();
+        Assert.assertEquals(2, sessionMap.getSessionNames().size());
+        Assert.assertEquals("Session 1", sessionMap.getCurrentSessionName());
+        Assert.assertEquals("apath", sessionMap.getCurrentEditorSession().getSelectedFile());
+    }
+
+    // Changes made after save are not part of that save.
+    @Test
+    public void testSnapshot() {
+        EditorSession session = sessionMap.switchEditorSession("Session 1");
+        session.createEditorSessionData(false, false, fileInfoList, "apath");
+        scheduler.schedule(sessionMap.takeChanges());
+        session.updateEditorSessionButtons(true, true);
+        scheduler.flush(1000);
+        journal.close();
+
+        session = new SessionJournal(path).load().getSessionMap().getEditorSession("Session 1");
+        Assert.assertFalse(session.getKeepAlphabetical());
+        Assert.assertFalse(session.getIsSnapshot());
+    }
+
+    // Without a flush the background job gets there on its own.
+    @Test
+    public void testBackground() throws InterruptedException {
+        sessionMap.switchEditorSession("Session 1");
+        scheduler.schedule(sessionMap.takeChanges());
+        File journalFile = new File(path + JOURNAL_SUFFIX);
+        for (int i = 0; i < 100 && journalFile.length() == 0; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertTrue(journalFile.length() > 0);
+        journal.close();
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            // The sessions directory.
+            if (f.isDirectory()) {
+                for (File shard : f.listFiles()) {
+                    shard.delete();
+                }
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+
+}
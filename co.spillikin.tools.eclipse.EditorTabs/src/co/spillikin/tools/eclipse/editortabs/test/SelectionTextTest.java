@@ -0,0 +1,125 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+import co.spillikin.tools.eclipse.editortabs.util.SessionJournal;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SELECTION_TEXT_MAX_CHARS;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SHARD_DIRECTORY;
+import static co.spillikin.tools.eclipse.editortabs.Constants.VERSION_MINOR;
+
+/**
+ * A huge selection keeps its offset and length, but not all its text.
+ * Stores written before the cap shrink the first time they're loaded.
+ *
+ * @author chris
+ *
+ */
+public class SelectionTextTest {
+
+    private static final int HUGE = 200000;
+
+    // Where testMigration keeps its store.
+    File dir = null;
+
+    // Capped, never split in the middle of a character.
+    @Test
+    public void testCap() {
+        FileInfo fi = new FileInfo("a", "/p/a", 0, 9000, 5, HUGE, repeat('x', HUGE), false);
+        Assert.assertEquals(SELECTION_TEXT_MAX_CHARS, fi.getText().length());
+        Assert.assertEquals(Integer.valueOf(HUGE), fi.getLength());
+        Assert.assertEquals(Integer.valueOf(5), fi.getOffset());
+
+        String emoji = repeat('x', SELECTION_TEXT_MAX_CHARS - 1) + "\uD83D\uDE00";
+        fi = new FileInfo("a", "/p/a", 0, 0, 0, emoji.length(), emoji, false);
+        Assert.assertEquals(SELECTION_TEXT_MAX_CHARS - 1, fi.getText().length());
+
+        fi = new FileInfo("a", "/p/a", 0, 0, 0, 5, "short", false);
+        Assert.assertEquals("short", fi.getText());
+    }
+
+    // An old single file store with a huge selection in it.
+    @Test
+    public void testMigration() throws IOException {
+        dir = Files.createTempDirectory("selectiontest").toFile();
+        String path = new File(dir, FILENAME).getPath();
+        EditorSessionsData data = new EditorSessionsData();
+        data.setHeader(1, 1, null, null);
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        fileInfoList.add(new FileInfo("a", "/p/a", 0, 9000, 5, HUGE, "PLACEHOLDER", false));
+        data.getSessionMap().switchEditorSession("Big").createEditorSessionData(false, false,
+            fileInfoList, "/p/a");
+        Builder.save(data, path);
+        // Written by the old plugin, before there was a cap.
+        File legacy = new File(path);
+        String xml = new String(Files.readAllBytes(legacy.toPath()), StandardCharsets.UTF_8);
+        Files.write(legacy.toPath(),
+            xml.replace("PLACEHOLDER", repeat('x', HUGE)).getBytes(StandardCharsets.UTF_8));
+
+        SessionJournal journal = new SessionJournal(path);
+        journal.load();
+        journal.close();
+        Assert.assertTrue(size(new File(dir, SHARD_DIRECTORY)) < HUGE / 10);
+
+        journal = new SessionJournal(path);
+        EditorSessionsData read = journal.load();
+        journal.close();
+        Assert.assertEquals(VERSION_MINOR, read.getVersionMinor());
+        FileInfo fi = read.getSessionMap().getEditorSession("Big").getFileInfoList().get(0);
+        Assert.assertEquals(SELECTION_TEXT_MAX_CHARS, fi.getText().length());
+        Assert.assertEquals(Integer.valueOf(HUGE), fi.getLength());
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        if (dir == null) {
+            return;
+        }
+        for (File f : dir.listFiles()) {
+            // The sessions directory.
+            if (f.isDirectory()) {
+                for (File shard : f.listFiles()) {
+                    shard.delete();
+                }
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private static long size(File f) {
+        if (f.isFile()) {
+            return f.length();
+        }
+        long total = 0;
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                total += size(child);
+            }
+        }
+        return total;
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionDiff;
+
+/**
+ * Added, removed, moved and selection changes, all from one diff.
+ *
+ * @author chris
+ *
+ */
+public class SessionDiffTest {
+
+    List<FileInfo> existing = new ArrayList<>();
+
+    // Runs before each test.
+    @Before
+    public void setup() {
+        for (String name : new String[] { "a", "b", "c", "d" }) {
+            existing.add(file(name));
+        }
+    }
+
+    // Nothing at all changed.
+    @Test
+    public void testUnchanged() {
+        SessionDiff diff = new SessionDiff(existing, "apath", new ArrayList<>(existing), "apath");
+        Assert.assertTrue(diff.isIdentical());
+        Assert.assertTrue(diff.isUnchanged());
+        Assert.assertEquals(0, diff.getNumToBeAdded());
+        Assert.assertEquals(0, diff.getNumToBeDeleted());
+    }
+
+    // b dropped, e added, d moved to the front, new selection.
+    @Test
+    public void testEverything() {
+        List<FileInfo> proposed = new ArrayList<>();
+        proposed.add(file("d"));
+        proposed.add(file("a"));
+        proposed.add(file("e"));
+        proposed.add(file("c"));
+        SessionDiff diff = new SessionDiff(existing, "apath", proposed, "epath");
+        Assert.assertFalse(diff.isIdentical());
+        Assert.assertEquals(1, diff.getNumToBeAdded());
+        Assert.assertEquals("epath", diff.getAdded().get(0).getFullPath());
+        Assert.assertEquals(1, diff.getNumToBeDeleted());
+        Assert.assertEquals("bpath", diff.getRemoved().get(0).getFullPath());
+        // Shared files were a c d, now d a c.  All three moved.
+        Assert.assertEquals(3, diff.getReordered().size());
+        Assert.assertTrue(diff.isSelectionChanged());
+    }
+
+    // Same files in another order is still identical, but not unchanged.
+    @Test
+    public void testReorderOnly() {
+        List<FileInfo> proposed = new ArrayList<>(existing);
+        proposed.add(proposed.remove(0));
+        SessionDiff diff = new SessionDiff(existing, null, proposed, null);
+        Assert.assertTrue(diff.isIdentical());
+        Assert.assertFalse(diff.isUnchanged());
+        Assert.assertFalse(diff.isSelectionChanged());
+        Assert.assertEquals(4, diff.getReordered().size());
+    }
+
+    // A removed file doesn't make the ones after it count as moved.
+    @Test
+    public void testRemoveIsNotReorder() {
+        List<FileInfo> proposed = new ArrayList<>(existing);
+        proposed.remove(1);
+        SessionDiff diff = new SessionDiff(existing, null, proposed, null);
+        Assert.assertEquals(1, diff.getNumToBeDeleted());
+        Assert.assertTrue(diff.getReordered().isEmpty());
+    }
+
+    private FileInfo file(String name) {
+        return new FileInfo(name, name + "path", 0, 0, 0, 0, null, true);
+    }
+}
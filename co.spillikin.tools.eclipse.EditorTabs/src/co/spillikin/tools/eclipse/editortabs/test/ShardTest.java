@@ -0,0 +1,221 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+import co.spillikin.tools.eclipse.editortabs.util.SessionJournal;
+import co.spillikin.tools.eclipse.editortabs.util.ShardedStore;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_COMPACTING_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.MANIFEST_FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.MIGRATED_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SHARD_DIRECTORY;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SHARD_SUFFIX;
+
+/**
+ * One file per session.  Changing one session must only touch
+ * its own file, and the old single file has to move over.
+ *
+ * @author chris
+ *
+ */
+public class ShardTest {
+
+    File dir = null;
+    File shardDir = null;
+    String path = null;
+    EditorSessionsData data = null;
+
+    // Runs before each test.
+    // A model with three sessions, not saved anywhere yet.
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("shardtest").toFile();
+        shardDir = new File(dir, SHARD_DIRECTORY);
+        path = new File(dir, FILENAME).getPath();
+        data = new EditorSessionsData();
+        SessionMap sessionMap = data.getSessionMap();
+        for (String name : new String[] { "One", "Two", "Three" }) {
+            List<FileInfo> fileInfoList = new ArrayList<>();
+            fileInfoList.add(new FileInfo(name + ".java", "/p/" + name, 0, 0, 0, 0, null, true));
+            sessionMap.switchEditorSession(name).createEditorSessionData(false, false,
+                fileInfoList, "/p/" + name);
+        }
+        sessionMap.setPreviousSessionName("One");
+    }
+
+    // Rewriting one session leaves every other file alone.
+    @Test
+    public void testOnlyChangedShard() throws IOException {
+        ShardedStore store = new ShardedStore(shardDir);
+        store.writeAll(data);
+        Assert.assertEquals(4, shardDir.listFiles().length);
+        Map<String, Long> before = stampAll();
+
+        store = new ShardedStore(shardDir);
+        store.loadIndex();
+        EditorSession two = data.getSessionMap().getEditorSession("Two");
+        two.updateFilePathList(two.getFileInfoList(), "/p/other");
+        store.putSession("Two", two);
+        store.commit();
+
+        int rewritten = 0;
+        for (File f : shardDir.listFiles()) {
+            if (f.lastModified() != before.get(f.getName())) {
+                rewritten++;
+            }
+        }
+        Assert.assertEquals(1, rewritten);
+        Assert.assertEquals(before.get(MANIFEST_FILENAME),
+            Long.valueOf(new File(shardDir, MANIFEST_FILENAME).lastModified()));
+
+        store = new ShardedStore(shardDir);
+        store.loadIndex();
+        Map<String, EditorSession> loaded = store
+            .loadSessions(data.getSessionMap().getSessionNames());
+        Assert.assertEquals(3, loaded.size());
+        Assert.assertEquals("/p/other", loaded.get("Two").getSelectedFile());
+        Assert.assertEquals("/p/One", loaded.get("One").getSelectedFile());
+    }
+
+    // Removed sessions lose their file once the manifest is written.
+    @Test
+    public void testRemove() throws IOException {
+        ShardedStore store = new ShardedStore(shardDir);
+        store.writeAll(data);
+        store.removeSession("One");
+        store.setPointers("Three", null);
+        store.commit();
+        Assert.assertEquals(3, shardDir.listFiles().length);
+
+        SessionMap sessionMap = new ShardedStore(shardDir).loadIndex().getSessionMap();
+        Assert.assertEquals(2, sessionMap.getSessionNames().size());
+        Assert.assertFalse(sessionMap.getSessionNames().contains("One"));
+        Assert.assertEquals("Three", sessionMap.getCurrentSessionName());
+        Assert.assertNull(sessionMap.getPreviousSessionName());
+    }
+
+    // The old single file is moved into the store on first load.
+    @Test
+    public void testMigrate() throws IOException {
+        Builder.save(data, path);
+        SessionJournal journal = new SessionJournal(path);
+        SessionMap sessionMap = journal.load().getSessionMap();
+        journal.close();
+        Assert.assertFalse(new File(path).exists());
+        Assert.assertTrue(new File(path + MIGRATED_SUFFIX).exists());
+        Assert.assertTrue(new File(shardDir, MANIFEST_FILENAME).exists());
+        Assert.assertEquals(3, sessionMap.getSessionNames().size());
+        Assert.assertEquals("Three", sessionMap.getCurrentSessionName());
+        Assert.assertEquals("/p/Two", sessionMap.getEditorSession("Two").getSelectedFile());
+    }
+
+    // A journal left half compacted gets finished on the next load
+    // instead of blocking every later compaction.
+    @Test
+    public void testLeftoverCompaction() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        journal.load();
+        journal.checkpoint(data);
+        journal.close();
+
+        journal = new SessionJournal(path);
+        SessionMap sessionMap = journal.load().getSessionMap();
+        EditorSession one = sessionMap.getEditorSession("One");
+        one.updateFilePathList(one.getFileInfoList(), "/p/changed");
+        journal.append(sessionMap.takeChanges());
+        journal.close();
+        Assert.assertTrue(new File(path + JOURNAL_SUFFIX)
+            .renameTo(new File(path + JOURNAL_COMPACTING_SUFFIX)));
+
+        journal = new SessionJournal(path);
+        journal.load();
+        journal.close();
+        Assert.assertFalse(new File(path + JOURNAL_COMPACTING_SUFFIX).exists());
+
+        sessionMap = new SessionJournal(path).load().getSessionMap();
+        Assert.assertEquals("/p/changed",
+            sessionMap.getEditorSession("One").getSelectedFile());
+    }
+
+    // The path index is built from the shards without loading any
+    // session.  Changing a session's paths leaves the manifest alone.
+    @Test
+    public void testPathsWithoutLoading() throws IOException {
+        SessionJournal journal = new SessionJournal(path);
+        journal.load();
+        journal.checkpoint(data);
+        journal.close();
+
+        journal = new SessionJournal(path);
+        SessionMap sessionMap = journal.load().getSessionMap();
+        journal.close();
+        Assert.assertEquals(Collections.singleton("Two"),
+            sessionMap.getSessionsHolding("/p/Two"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("One"));
+        Assert.assertFalse(sessionMap.isSessionLoaded("Two"));
+
+        Map<String, Long> before = stampAll();
+        ShardedStore store = new ShardedStore(shardDir);
+        store.loadIndex();
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        fileInfoList.add(new FileInfo("Moved.java", "/q/Moved", 0, 0, 0, 0, null, true));
+        EditorSession two = data.getSessionMap().getEditorSession("Two");
+        two.updateFilePathList(fileInfoList, null);
+        store.putSession("Two", two);
+        store.commit();
+        Assert.assertEquals(before.get(MANIFEST_FILENAME),
+            Long.valueOf(new File(shardDir, MANIFEST_FILENAME).lastModified()));
+
+        store = new ShardedStore(shardDir);
+        store.loadIndex();
+        Assert.assertEquals(Collections.singletonList("/q/Moved"),
+            store.loadFilePaths(Collections.singleton("Two")).get("Two"));
+    }
+
+    // Set every file in the store to an old time, so a rewrite shows.
+    private Map<String, Long> stampAll() {
+        Map<String, Long> stamps = new HashMap<>();
+        for (File f : shardDir.listFiles()) {
+            Assert.assertTrue(f.getName().endsWith(SHARD_SUFFIX)
+                || f.getName().equals(MANIFEST_FILENAME));
+            f.setLastModified(1000000000000L);
+            stamps.put(f.getName(), f.lastModified());
+        }
+        return stamps;
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            // The sessions directory.
+            if (f.isDirectory()) {
+                for (File shard : f.listFiles()) {
+                    shard.delete();
+                }
+            }
+            f.delete();
+        }
+        dir.delete();
+    }
+
+}
@@ -0,0 +1,155 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+import co.spillikin.tools.eclipse.editortabs.util.Builder;
+import co.spillikin.tools.eclipse.editortabs.util.StreamBuilder;
+
+/**
+ * The streaming reader and writer must agree with JAXB byte for byte,
+ * so files written by older versions of the plugin still load and
+ * files we write can be imported by them.
+ *
+ * @author chris
+ *
+ */
+public class StreamTest {
+
+    File dir = null;
+    File jaxbFile = null;
+    EditorSessionsData data = null;
+
+    // Runs before each test.
+    @Before
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("streamtest").toFile();
+        jaxbFile = new File(dir, "jaxb.xml");
+
+        data = new EditorSessionsData();
+        data.setWorkspaceName("Work <space> & \"friends\"");
+        SessionMap sessionMap = data.getSessionMap();
+
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        // Selection text with everything that needs escaping.
+        fileInfoList.add(new FileInfo("b.java", "/p/b.java", 1, 2, 3, 4,
+            "if (a < b && c > d) {\r\n\tx = \"y\";\n}", false));
+        fileInfoList.add(new FileInfo("a.java", "/p/a.java", 0, 0, 0, 0, null, true));
+        fileInfoList.add(new FileInfo("e.java", "/p/e.java", 0, 0, 0, 0, "", false));
+        sessionMap.switchEditorSession("Tabs & \"more\"\n").createEditorSessionData(true, false,
+            fileInfoList, "/p/b.java");
+        // A session with no files at all.
+        sessionMap.switchEditorSession("Empty");
+        sessionMap.setPreviousSessionName("Tabs & \"more\"\n");
+    }
+
+    // Same model, same bytes.
+    @Test
+    public void testSameBytesAsJaxb() throws IOException {
+        Builder.saveJaxb(data, jaxbFile.getPath());
+        Assert.assertArrayEquals(Files.readAllBytes(jaxbFile.toPath()), write(data));
+    }
+
+    // An empty store too.
+    @Test
+    public void testEmptySameBytesAsJaxb() throws IOException {
+        EditorSessionsData empty = new EditorSessionsData();
+        Builder.saveJaxb(empty, jaxbFile.getPath());
+        Assert.assertArrayEquals(Files.readAllBytes(jaxbFile.toPath()), write(empty));
+    }
+
+    // Write, read back, write again.  Nothing may change.
+    @Test
+    public void testRoundTrip() throws IOException, XMLStreamException {
+        byte[] bytes = write(data);
+        EditorSessionsData read = StreamBuilder.read(new ByteArrayInputStream(bytes));
+        Assert.assertArrayEquals(bytes, write(read));
+
+        SessionMap sessionMap = read.getSessionMap();
+        Assert.assertEquals("Empty", sessionMap.getCurrentSessionName());
+        Assert.assertTrue(sessionMap.takeChanges().isEmpty());
+        EditorSession session = sessionMap.getEditorSession("Tabs & \"more\"\n");
+        Assert.assertTrue(session.getKeepAlphabetical());
+        Assert.assertEquals(3, session.getFileInfoList().size());
+        Assert.assertEquals("if (a < b && c > d) {\r\n\tx = \"y\";\n}",
+            session.getFileInfoList().get(1).getText());
+        Assert.assertEquals("", session.getFileInfoList().get(2).getText());
+    }
+
+    // A file written by JAXB reads the same with either reader.
+    @Test
+    public void testReadsJaxbFile() throws IOException, XMLStreamException {
+        Builder.saveJaxb(data, jaxbFile.getPath());
+        EditorSessionsData viaJaxb = Builder.loadJaxb(jaxbFile.getPath());
+        EditorSessionsData viaStream = Builder.load(jaxbFile.getPath());
+        Assert.assertNull(viaStream.getDataException());
+        Assert.assertArrayEquals(write(viaJaxb), write(viaStream));
+    }
+
+    // Elements we don't know about are skipped, not fatal.
+    @Test
+    public void testUnknownElements() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(jaxbFile)) {
+            out.write(("<EditorSessionsData versionMajor=\"1\"><future a=\"b\"><x/></future>"
+                + "<sessionMapContainer currentSessionName=\"s\"><sessionMap><entry>"
+                + "<key>s</key><value label=\"s\"><extra/></value></entry></sessionMap>"
+                + "</sessionMapContainer></EditorSessionsData>").getBytes("UTF-8"));
+        }
+        EditorSessionsData read = Builder.load(jaxbFile.getPath());
+        Assert.assertNull(read.getDataException());
+        Assert.assertNotNull(read.getSessionMap().getEditorSession("s"));
+    }
+
+    // No isDirectory attribute means false, as it always has, with
+    // either reader.
+    @Test
+    public void testMissingIsDirectory() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(jaxbFile)) {
+            out.write(("<EditorSessionsData versionMajor=\"1\"><sessionMapContainer>"
+                + "<sessionMap><entry><key>s</key><value label=\"s\">"
+                + "<FileInfo fileName=\"a.java\" fullPath=\"/p/a.java\"/></value></entry>"
+                + "</sessionMap></sessionMapContainer></EditorSessionsData>").getBytes("UTF-8"));
+        }
+        for (EditorSessionsData read : new EditorSessionsData[] {
+            Builder.loadJaxb(jaxbFile.getPath()), Builder.load(jaxbFile.getPath()) }) {
+            Assert.assertNull(read.getDataException());
+            FileInfo fi = read.getSessionMap().getEditorSession("s").getStoredFileInfoList()
+                .get(0);
+            Assert.assertEquals(Boolean.FALSE, fi.getIsDirectory());
+            Assert.assertNull(fi.getIsEmpty());
+        }
+    }
+
+    private static byte[] write(EditorSessionsData sessionsData) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StreamBuilder.write(sessionsData, bytes);
+        return bytes.toByteArray();
+    }
+
+    // Runs after each test.
+    @After
+    public void tearDown() {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+}
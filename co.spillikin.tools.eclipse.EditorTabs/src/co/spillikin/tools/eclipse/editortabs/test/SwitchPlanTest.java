@@ -0,0 +1,87 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SwitchPlan;
+
+/**
+ * Switching sessions keeps shared tabs, and moves as few of them
+ * as it can.
+ *
+ * @author chris
+ *
+ */
+public class SwitchPlanTest {
+
+    // c and d are shared, a and b go, e and f come.
+    @Test
+    public void testCloseAndOpen() {
+        SwitchPlan plan = new SwitchPlan(Arrays.asList("apath", "bpath", "cpath", "dpath"),
+            files("c", "d", "e", "f"), false);
+        Assert.assertEquals(Arrays.asList("apath", "bpath"), plan.getToClose());
+        Assert.assertEquals(Arrays.asList("epath", "fpath"), paths(plan.getToOpen()));
+        Assert.assertEquals(Arrays.asList("cpath", "dpath"), paths(plan.getKept()));
+        Assert.assertTrue(plan.getToMove().isEmpty());
+        Assert.assertFalse(plan.isNothingToDo());
+    }
+
+    // Already there.
+    @Test
+    public void testNothing() {
+        SwitchPlan plan = new SwitchPlan(Arrays.asList("apath", "bpath"), files("a", "b"), true);
+        Assert.assertTrue(plan.isNothingToDo());
+    }
+
+    // Open as b c d a, wanted a b c d.  Only a has to move.
+    @Test
+    public void testFewestMoves() {
+        SwitchPlan plan = new SwitchPlan(Arrays.asList("bpath", "cpath", "dpath", "apath"),
+            files("a", "b", "c", "d"), true);
+        Assert.assertEquals(Arrays.asList("apath"), paths(plan.getToMove()));
+        // Order not asked for, nothing moves.
+        plan = new SwitchPlan(Arrays.asList("bpath", "cpath", "dpath", "apath"),
+            files("a", "b", "c", "d"), false);
+        Assert.assertTrue(plan.isNothingToDo());
+    }
+
+    // Wanted order reversed, all but one move.  Closed tabs don't count.
+    @Test
+    public void testReversed() {
+        SwitchPlan plan = new SwitchPlan(
+            Arrays.asList("dpath", "xpath", "cpath", "bpath", "apath"), files("a", "b", "c", "d"),
+            true);
+        Assert.assertEquals(3, plan.getToMove().size());
+        Assert.assertEquals(Arrays.asList("xpath"), plan.getToClose());
+    }
+
+    // A file open in two tabs is kept once.
+    @Test
+    public void testOpenTwice() {
+        SwitchPlan plan = new SwitchPlan(Arrays.asList("apath", "apath", "bpath"),
+            files("a", "b"), true);
+        Assert.assertTrue(plan.isNothingToDo());
+        Assert.assertEquals(2, plan.getKept().size());
+    }
+
+    private List<FileInfo> files(String... names) {
+        List<FileInfo> list = new ArrayList<>();
+        for (String name : names) {
+            list.add(new FileInfo(name, name + "path", 0, 0, 0, 0, null, true));
+        }
+        return list;
+    }
+
+    private List<String> paths(List<FileInfo> list) {
+        List<String> result = new ArrayList<>();
+        for (FileInfo fi : list) {
+            result.add(fi.getFullPath());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,153 @@
+package co.spillikin.tools.eclipse.editortabs.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IFileEditorInput;
+import org.eclipse.ui.IWorkbenchPage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.util.EditorTracker;
+
+/**
+ * The tracker keeps up with tabs that open and close without a part
+ * event, ones that were never shown.  Sessions updated from it keep
+ * them.
+ *
+ * There's no workbench here, the page and its editors are stand ins
+ * that only know their files.
+ *
+ * @author chris
+ *
+ */
+public class TrackerTest {
+
+    // What the page says is open, in tab order.
+    List<IEditorReference> refs = null;
+    EditorTracker tracker = null;
+
+    // Runs before each test.
+    @Before
+    public void setup() {
+        refs = new ArrayList<>(Arrays.asList(editor("/p/One.java"), editor("/p/Two.java"),
+            editor("/p/Three.java")));
+        tracker = new EditorTracker();
+        tracker.attach(page());
+    }
+
+    // Closed without ever being shown, no partClosed.
+    @Test
+    public void testClosedUnseen() {
+        refs.remove(1);
+        Assert.assertEquals(Arrays.asList("/p/One.java", "/p/Three.java"),
+            paths(tracker.getOpenFileList()));
+        Assert.assertEquals(2, tracker.getActivationOrder().size());
+    }
+
+    // Opened without being made, no partOpened.
+    @Test
+    public void testOpenedUnseen() {
+        refs.add(editor("/p/Four.java"));
+        Assert.assertEquals(
+            Arrays.asList("/p/One.java", "/p/Two.java", "/p/Three.java", "/p/Four.java"),
+            paths(tracker.getOpenFileList()));
+    }
+
+    // Opened lazily and never shown, still in the session after the
+    // next update.
+    @Test
+    public void testLazyTabsSurviveUpdate() {
+        EditorSession session = EditorSession.fromStream("Work", false, false, null,
+            tracker.getOpenFileList());
+        IEditorReference[] opened = { editor("/q/Four.java"), null, editor("/q/Five.java") };
+        for (IEditorReference er : opened) {
+            if (er != null) {
+                refs.add(er);
+            }
+        }
+        tracker.track(opened);
+
+        session.updateFilePathList(tracker.getOpenFileList(), "/p/One.java");
+        Assert.assertEquals(Arrays.asList("/p/One.java", "/p/Two.java", "/p/Three.java",
+            "/q/Four.java", "/q/Five.java"), paths(session.getStoredFileInfoList()));
+    }
+
+    // The same file twice, one tab goes, the other takes over.
+    @Test
+    public void testSameFileTwice() {
+        refs.add(editor("/p/One.java"));
+        refs.remove(0);
+        Assert.assertEquals(Arrays.asList("/p/Two.java", "/p/Three.java", "/p/One.java"),
+            paths(tracker.getOpenFileList()));
+    }
+
+    IWorkbenchPage page() {
+        return proxy(IWorkbenchPage.class, (p, m, args) -> {
+            if (m.getName().equals("getEditorReferences")) {
+                return refs.toArray(new IEditorReference[refs.size()]);
+            }
+            return null;
+        });
+    }
+
+    static IEditorReference editor(String fullPath) {
+        IFile file = proxy(IFile.class, (p, m, args) -> {
+            switch (m.getName()) {
+            case "getFullPath":
+                return new Path(fullPath);
+            case "getName":
+                return fullPath.substring(fullPath.lastIndexOf('/') + 1);
+            default:
+                return null;
+            }
+        });
+        IFileEditorInput input = proxy(IFileEditorInput.class,
+            (p, m, args) -> m.getName().equals("getFile") ? file : null);
+        return proxy(IEditorReference.class,
+            (p, m, args) -> m.getName().equals("getEditorInput") ? input : null);
+    }
+
+    // Stand in for an interface.  Equal only to itself, zero or false
+    // for anything the handler doesn't answer.
+    @SuppressWarnings("unchecked")
+    static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TrackerTest.class.getClassLoader(),
+            new Class<?>[] { type }, (p, m, args) -> {
+                switch (m.getName()) {
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return type.getSimpleName();
+                default:
+                    Object result = handler.invoke(p, m, args);
+                    if (result == null && m.getReturnType() == boolean.class) {
+                        return false;
+                    }
+                    if (result == null && m.getReturnType() == int.class) {
+                        return 0;
+                    }
+                    return result;
+                }
+            });
+    }
+
+    private static List<String> paths(List<FileInfo> fileInfoList) {
+        List<String> list = new ArrayList<>();
+        for (FileInfo fi : fileInfoList) {
+            list.add(fi.getFullPath());
+        }
+        return list;
+    }
+}
@@ -30,6 +30,8 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.Text;
 
+import co.spillikin.tools.eclipse.editortabs.model.SessionDiff;
+
 import static co.spillikin.tools.eclipse.editortabs.Constants.*;
 
 public class CreateUpdateDialog extends TitleAreaDialog {
@@ -60,8 +62,7 @@ public class CreateUpdateDialog extends TitleAreaDialog {
     // List of tab names on screen if Create or in group if Update
     private List<String> tabNames;
     // If ss is to be updated, give use some info
-    private int numToAdd = 0;
-    private int numToDelete = 0;
+    private SessionDiff diff = null;
     // ResourceBundle with associated Strings for the dialog.
     private ResourceBundle resBundle;
 
@@ -78,13 +79,12 @@ public class CreateUpdateDialog extends TitleAreaDialog {
      * @param currentSessionName
      * @param isSnapshot
      * @param keepAlphabetical
-     * @param numToAdd  Difference between screen and existing session for Update
-     * @param numToDelete  Difference between screen and existing session for Update
-     * @param doNotShowUpdateSnapshotControl
+     * @param diff  Difference between screen and existing session for Update.
+     * May be null if there is no existing session.
      */
     public CreateUpdateDialog(Shell parentShell, ResourceBundle resBundle, List<String> tabNames,
         Boolean create, String currentSessionName, Boolean isSnapshot, Boolean keepAlphabetical,
-        int numToAdd, int numToDelete, Boolean doNotShowUpdateSnapshotControl) {
+        SessionDiff diff) {
         super(parentShell);
         this.tabNames = tabNames;
         this.create = create;
@@ -93,11 +93,9 @@ public class CreateUpdateDialog extends TitleAreaDialog {
         this.keepAlphabetical = keepAlphabetical;
         this.resBundle = resBundle;
         // updateSnapshot options, only if updating.
-        if (create == false) {
-            // look closely Chris, there's a ! here.
-            this.showUpdateSnapshotControl = !doNotShowUpdateSnapshotControl;
-            this.numToAdd = numToAdd;
-            this.numToDelete = numToDelete;
+        if (create == false && diff != null) {
+            this.showUpdateSnapshotControl = !diff.isIdentical();
+            this.diff = diff;
         } else {
             this.showUpdateSnapshotControl = false;
         }
@@ -113,9 +111,8 @@ public class CreateUpdateDialog extends TitleAreaDialog {
      * @param Number of open tabs that will be put in this session.
      */
     public CreateUpdateDialog(Shell parentShell, ResourceBundle resBundle, List<String> tabNames) {
-        // Set "the same" to true to prevent the additional checkbox from 
-        // appearing.
-        this(parentShell, resBundle, tabNames, true, null, false, false, 0, 0, true);
+        // No diff, so the additional checkbox does not appear.
+        this(parentShell, resBundle, tabNames, true, null, false, false, null);
 
     }
 
@@ -231,9 +228,10 @@ public class CreateUpdateDialog extends TitleAreaDialog {
         if (showUpdateSnapshotControl) {
             // Label to the left of the lbUpdateSs check box
             Label lbUpdateSs = new Label(container, SWT.NONE);
-            lbUpdateSs.setText(
-                numToAdd + " " + resBundle.getString(SSUPDATE_CHECKBOX_DESCRIPTION_1_KEY) + "\n"
-                    + numToDelete + " " + resBundle.getString(SSUPDATE_CHECKBOX_DESCRIPTION_2_KEY));
+            lbUpdateSs.setText(diff.getNumToBeAdded() + " "
+                + resBundle.getString(SSUPDATE_CHECKBOX_DESCRIPTION_1_KEY) + "\n"
+                + diff.getNumToBeDeleted() + " "
+                + resBundle.getString(SSUPDATE_CHECKBOX_DESCRIPTION_2_KEY));
 
             // Checkbox to the right
             Button ssupdateToggle = new Button(container, SWT.CHECK);
@@ -27,8 +27,8 @@ import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
 
 import static co.spillikin.tools.eclipse.editortabs.Constants.*;
 
+import java.util.Arrays;
 import java.util.ResourceBundle;
-import java.util.Set;
 
 /**
  * This dialog handles the selection of a set of editor tabs.
@@ -81,7 +81,7 @@ public class SelectGroupDialog extends TitleAreaDialog {
         }
         // If none is selected, grab the first one
         if (selectedSessionName == null) {
-            selectedSessionName = sessionMap.getSessionNames().iterator().next();
+            selectedSessionName = sessionMap.getSortedSessionNames()[0];
         }
         // Finally just get the current name
         currentGroupName = sessionMap.getCurrentSessionName();
@@ -172,17 +172,11 @@ public class SelectGroupDialog extends TitleAreaDialog {
 
         sessionSelectCombo.addListener(SWT.Selection,
             event -> onDropdownNameSelected(sessionSelectCombo));
-        int i = 0;
-        int select = 0;
-        Set<String> groupNameList = sessionMap.getSessionNames();
-        for (String name : groupNameList) {
-            sessionSelectCombo.add(name);
-            if (name.equalsIgnoreCase(selectedSessionName)) {
-                select = i;
-            }
-            i++;
-        }
-        sessionSelectCombo.select(select);
+        // Sorted, same as everywhere else names are listed.
+        String[] groupNameList = sessionMap.getSortedSessionNames();
+        sessionSelectCombo.setItems(groupNameList);
+        int select = Arrays.binarySearch(groupNameList, selectedSessionName);
+        sessionSelectCombo.select(select < 0 ? 0 : select);
 
     }
 
@@ -0,0 +1,384 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+/**
+ * Compact binary form of a session, one per shard in ShardedStore.
+ * Exports stay XML so people can read them.
+ *
+ * Before ShardedStore the whole model went in one binary state file.
+ * Only reading that is left, so Builder.load can still migrate one
+ * (it tells it from XML by the magic number at the start).  Nothing
+ * writes it any more.
+ *
+ * Whole file layout (format version 1):
+ *   magic "ESDB", format version byte
+ *   string table: varint count, then each string as varint length + UTF-8
+ *   header: company, author, workspaceName (refs),
+ *           versionMajor, versionMinor (nullable varints)
+ *   current, previous session name (refs)
+ *   varint session count, then for each session
+ *     key (ref), varint body length, body:
+ *       label, selectedFile (refs), flags byte, varint file count, files
+ *   file: flags byte, fileName, fullPath, text (refs),
+ *         then startLine, endLine, offset, length (zigzag varints)
+ *         for each one present.
+ *
+ * Every string (session names, paths, selections) is written once in
+ * the table and referred to by index + 1.  Ref 0 is null.
+ * Booleans take two bits each: 0 null, 1 false, 2 true.  The top four
+ * bits of a file's flags say which of its four numbers are present.
+ * Session bodies in the whole file are length prefixed.
+ *
+ * A shard (one session on its own, see ShardedStore) is magic "ESDS",
+ * format version byte, a string table of its own, then one session body.
+ *
+ * @author chris
+ *
+ */
+public class BinaryBuilder {
+
+    static final byte[] MAGIC = { 'E', 'S', 'D', 'B' };
+    static final byte[] SHARD_MAGIC = { 'E', 'S', 'D', 'S' };
+    static final int FORMAT_VERSION = 1;
+
+    // Session flags
+    private static final int SNAPSHOT_SHIFT = 0;
+    private static final int ALPHA_SHIFT = 2;
+    // FileInfo flags
+    private static final int EMPTY_SHIFT = 0;
+    private static final int DIRECTORY_SHIFT = 2;
+    private static final int HAS_START_LINE = 1 << 4;
+    private static final int HAS_END_LINE = 1 << 5;
+    private static final int HAS_OFFSET = 1 << 6;
+    private static final int HAS_LENGTH = 1 << 7;
+
+    /**
+     * True if the given bytes start with our magic number.
+     * @param head at least the first 4 bytes of a file
+     * @param length number of valid bytes in head
+     * @return
+     */
+    static boolean isBinary(byte[] head, int length) {
+        if (length < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ================================================
+    // Writing
+
+    /**
+     * Write a single session as a shard.  The stream is not closed.
+     * @param session
+     * @param out
+     * @throws IOException
+     */
+    public static void writeShard(EditorSession session, OutputStream out) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        intern(strings, session.getLabel());
+        intern(strings, session.getSelectedFile());
+        for (FileInfo fi : session.getStoredFileInfoList()) {
+            intern(strings, fi.getFileName());
+            intern(strings, fi.getFullPath());
+            intern(strings, fi.getText());
+        }
+        Encoder e = new Encoder(out);
+        writeStart(e, SHARD_MAGIC, strings);
+        writeSession(e, strings, session);
+        out.flush();
+    }
+
+    // Magic, version and string table.
+    private static void writeStart(Encoder e, byte[] magic, Map<String, Integer> strings)
+        throws IOException {
+        e.out.write(magic);
+        e.out.write(FORMAT_VERSION);
+        e.varint(strings.size());
+        for (String s : strings.keySet()) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            e.varint(bytes.length);
+            e.out.write(bytes);
+        }
+    }
+
+    private static void writeSession(Encoder b, Map<String, Integer> strings,
+        EditorSession session) throws IOException {
+        b.ref(strings, session.getLabel());
+        b.ref(strings, session.getSelectedFile());
+        b.out.write(bool(session.getIsSnapshot(), SNAPSHOT_SHIFT)
+            | bool(session.getKeepAlphabetical(), ALPHA_SHIFT));
+        List<FileInfo> fileInfoList = session.getStoredFileInfoList();
+        b.varint(fileInfoList.size());
+        for (FileInfo fi : fileInfoList) {
+            int flags = bool(fi.getIsEmpty(), EMPTY_SHIFT)
+                | bool(fi.getIsDirectory(), DIRECTORY_SHIFT);
+            flags |= fi.getStartLine() != null ? HAS_START_LINE : 0;
+            flags |= fi.getEndLine() != null ? HAS_END_LINE : 0;
+            flags |= fi.getOffset() != null ? HAS_OFFSET : 0;
+            flags |= fi.getLength() != null ? HAS_LENGTH : 0;
+            b.out.write(flags);
+            b.ref(strings, fi.getFileName());
+            b.ref(strings, fi.getFullPath());
+            b.ref(strings, fi.getText());
+            b.zigzag(fi.getStartLine());
+            b.zigzag(fi.getEndLine());
+            b.zigzag(fi.getOffset());
+            b.zigzag(fi.getLength());
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String s) {
+        if (s != null && !strings.containsKey(s)) {
+            strings.put(s, strings.size());
+        }
+    }
+
+    private static int bool(Boolean b, int shift) {
+        if (b == null) {
+            return 0;
+        }
+        return (b ? 2 : 1) << shift;
+    }
+
+    // Varints and refs onto a stream.
+    private static class Encoder {
+        final OutputStream out;
+
+        Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        void varint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        // Skipped entirely if null, the flags say so.
+        void zigzag(Integer value) throws IOException {
+            if (value != null) {
+                varint((value << 1) ^ (value >> 31));
+            }
+        }
+
+        void nullableInt(Integer value) throws IOException {
+            varint(value == null ? 0 : value + 1);
+        }
+
+        void ref(Map<String, Integer> strings, String s) throws IOException {
+            varint(s == null ? 0 : strings.get(s) + 1);
+        }
+    }
+
+    // ================================================
+    // Reading
+
+    /**
+     * Read a shard written by writeShard.
+     * @param buffer the entire shard file
+     * @return EditorSession
+     * @throws IOException if the data is broken or from a newer version.
+     */
+    public static EditorSession readShard(ByteBuffer buffer) throws IOException {
+        try {
+            return new Decoder(buffer, SHARD_MAGIC).session();
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+            | IllegalArgumentException e) {
+            throw new IOException("Corrupt editor session shard", e);
+        }
+    }
+
+    /**
+     * Read an old whole model file, for migration.
+     * @param buffer the entire file
+     * @return EditorSessionsData
+     * @throws IOException if the data is broken or from a newer version.
+     */
+    public static EditorSessionsData read(ByteBuffer buffer) throws IOException {
+        try {
+            Decoder d = new Decoder(buffer, MAGIC);
+            EditorSessionsData sessionsData = new EditorSessionsData();
+            String company = d.string();
+            String author = d.string();
+            String workspaceName = d.string();
+            sessionsData.setHeader(d.nullableInt(), d.nullableInt(), company, author);
+            if (workspaceName != null) {
+                sessionsData.setWorkspaceName(workspaceName);
+            }
+
+            SessionMap sessionMap = new SessionMap();
+            sessionMap.setCurrentSessionName(d.string());
+            sessionMap.setPreviousSessionName(d.string());
+            int count = d.varint();
+            for (int i = 0; i < count; i++) {
+                String key = d.string();
+                // Body length, only there for readers that skipped.
+                d.varint();
+                sessionMap.restoreEditorSession(key, d.session());
+            }
+            sessionMap.clearChanges();
+            sessionsData.setSessionMap(sessionMap);
+            return sessionsData;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+            | IllegalArgumentException e) {
+            throw new IOException("Corrupt editor sessions file", e);
+        }
+    }
+
+    // Reads a file from the top.  Strings in the table are only
+    // decoded the first time they are referred to.
+    private static class Decoder {
+        final ByteBuffer buffer;
+        final int[] stringOffsets;
+        final int[] stringLengths;
+        final String[] strings;
+
+        Decoder(ByteBuffer buffer, byte[] expectedMagic) throws IOException {
+            this.buffer = buffer;
+            byte[] magic = new byte[expectedMagic.length];
+            buffer.get(magic);
+            if (!Arrays.equals(magic, expectedMagic)) {
+                throw new IOException("Not an editor sessions file");
+            }
+            int version = buffer.get() & 0xFF;
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown editor sessions format version " + version);
+            }
+            // Every string takes at least a byte for its length.  Check
+            // before allocating, a broken count is not worth running out
+            // of memory over.
+            int count = varint();
+            if (count < 0 || count > buffer.remaining()) {
+                throw new IOException("Bad string table count " + count);
+            }
+            stringOffsets = new int[count];
+            stringLengths = new int[count];
+            strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                int length = varint();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IOException("Bad string length " + length);
+                }
+                stringLengths[i] = length;
+                stringOffsets[i] = buffer.position();
+                skip(length);
+            }
+        }
+
+        EditorSession session() {
+            String label = string();
+            String selectedFile = string();
+            int flags = buffer.get() & 0xFF;
+            int fileCount = varint();
+            // Same as the string table, each file is at least a byte.
+            if (fileCount < 0 || fileCount > buffer.remaining()) {
+                throw new IllegalArgumentException("Bad file count " + fileCount);
+            }
+            List<FileInfo> fileInfoList = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                fileInfoList.add(fileInfo());
+            }
+            return EditorSession.fromStream(label, flag(flags, SNAPSHOT_SHIFT),
+                flag(flags, ALPHA_SHIFT), selectedFile, fileInfoList);
+        }
+
+        FileInfo fileInfo() {
+            int flags = buffer.get() & 0xFF;
+            String fileName = string();
+            String fullPath = string();
+            String text = string();
+            Integer startLine = zigzag(flags, HAS_START_LINE);
+            Integer endLine = zigzag(flags, HAS_END_LINE);
+            Integer offset = zigzag(flags, HAS_OFFSET);
+            Integer length = zigzag(flags, HAS_LENGTH);
+            return new FileInfo(fileName, fullPath, startLine, endLine, offset, length, text,
+                flag(flags, EMPTY_SHIFT), flag(flags, DIRECTORY_SHIFT));
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = buffer.get() & 0xFF;
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Bad varint");
+        }
+
+        Integer zigzag(int flags, int present) {
+            if ((flags & present) == 0) {
+                return null;
+            }
+            int v = varint();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        Integer nullableInt() {
+            int v = varint();
+            return v == 0 ? null : v - 1;
+        }
+
+        String string() {
+            int ref = varint();
+            if (ref == 0) {
+                return null;
+            }
+            int i = ref - 1;
+            if (strings[i] == null) {
+                strings[i] = new String(buffer.array(), buffer.arrayOffset() + stringOffsets[i],
+                    stringLengths[i], StandardCharsets.UTF_8);
+            }
+            return strings[i];
+        }
+
+        void skip(int length) {
+            buffer.position(buffer.position() + length);
+        }
+
+        static Boolean flag(int flags, int shift) {
+            switch ((flags >> shift) & 3) {
+            case 1:
+                return false;
+            case 2:
+                return true;
+            default:
+                return null;
+            }
+        }
+    }
+}
@@ -2,7 +2,7 @@
  * Eclipse Editor Sessions plugin.
  * A plugin designed to allow users to save and manage working sets of
  * files in Eclipse.
- * 
+ *
  * Written by Christopher Hull
  * May 2017
  * http://www.chrishull.com
@@ -10,24 +10,123 @@
  */
 package co.spillikin.tools.eclipse.editortabs.util;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import co.spillikin.tools.eclipse.editortabs.TabsPluginException;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
 import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
 
 /**
  * Static utility to marshall and unmarshall the data model
  * between XML and Java objects.
- * 
+ *
+ * Our own state lives in ShardedStore, in the compact binary format of
+ * BinaryBuilder.  Exports are XML, written by the streaming
+ * StreamBuilder, which produces exactly what JAXB would
+ * without holding a second copy of the model in memory.  Loading reads
+ * a whole file, XML or an old binary one (it looks at the first few
+ * bytes), and is only used for imports and migration.  JAXB is still used for
+ * single session journal records and as a fallback when the streaming
+ * reader chokes.
+ *
+ * Building a JAXBContext means reflecting over the whole model, and
+ * was the single biggest cost of a save or an import.  So we build
+ * one per process.  The context is thread safe but marshallers and
+ * unmarshallers are not, so each thread (UI, journal compaction)
+ * gets its own and keeps reusing it.
+ *
  * @author chris
  *
  */
 public class Builder {
 
+    // Size of the buffer between JAXB and the file channel.
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    // One context for the whole process.  Built on first use.
+    private static volatile JAXBContext jaxbContext = null;
+
+    // Pretty printed, for the data file and exports.
+    private static final ThreadLocal<Marshaller> formattedMarshaller = new ThreadLocal<>();
+    // Compact, for journal records.
+    private static final ThreadLocal<Marshaller> compactMarshaller = new ThreadLocal<>();
+    private static final ThreadLocal<Unmarshaller> unmarshaller = new ThreadLocal<>();
+
+    /**
+     * Get (or build the first time) our JAXBContext.
+     * @return JAXBContext
+     * @throws JAXBException
+     */
+    static JAXBContext getContext() throws JAXBException {
+        JAXBContext context = jaxbContext;
+        if (context == null) {
+            synchronized (Builder.class) {
+                context = jaxbContext;
+                if (context == null) {
+                    // Make sure the context is the IMPL.
+                    // JABX doesn't handle interfaces.
+                    context = JAXBContext.newInstance(EditorSessionsData.class);
+                    jaxbContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    private static Marshaller getMarshaller(boolean formatted) throws JAXBException {
+        ThreadLocal<Marshaller> cache = formatted ? formattedMarshaller : compactMarshaller;
+        Marshaller jaxbMarshaller = cache.get();
+        if (jaxbMarshaller == null) {
+            jaxbMarshaller = getContext().createMarshaller();
+            jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formatted);
+            cache.set(jaxbMarshaller);
+        }
+        return jaxbMarshaller;
+    }
+
+    private static Unmarshaller getUnmarshaller() throws JAXBException {
+        Unmarshaller jaxbUnmarshaller = unmarshaller.get();
+        if (jaxbUnmarshaller == null) {
+            jaxbUnmarshaller = getContext().createUnmarshaller();
+            unmarshaller.set(jaxbUnmarshaller);
+        }
+        return jaxbUnmarshaller;
+    }
+
+    /**
+     * For testing only.
+     * Throw away the cached context so the next call pays the
+     * full cold start cost again.  Used by the benchmark.
+     * Only clears marshallers belonging to the calling thread.
+     */
+    public static void unitTestClearCache() {
+        synchronized (Builder.class) {
+            jaxbContext = null;
+        }
+        formattedMarshaller.remove();
+        compactMarshaller.remove();
+        unmarshaller.remove();
+    }
+
     /**
      * For testing, save to a hardcoded path.
      * @param editorData
@@ -42,32 +141,93 @@ public class Builder {
      * @param filePath
      */
     public static void save(EditorSessionsData sessionsData, String filePath) {
-        try {
-
-            File file = new File(filePath);
-            // Make sure the context is the IMPL.
-            // JABX doesn't handle interfaces.
-            JAXBContext jaxbContext = JAXBContext.newInstance(EditorSessionsData.class);
-            Marshaller jaxbMarshaller = jaxbContext.createMarshaller();
+        try (OutputStream out = openForWrite(new File(filePath))) {
+            StreamBuilder.write(sessionsData, out);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /**
+     * Save thru JAXB instead of the streaming writer.
+     * Kept for comparison (see HeapBenchmark and StreamTest).
+     * @param sessionsData
+     * @param filePath
+     */
+    public static void saveJaxb(EditorSessionsData sessionsData, String filePath) {
+        try (OutputStream out = openForWrite(new File(filePath))) {
             // output pretty printed
-            jaxbMarshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            getMarshaller(true).marshal(sessionsData, out);
+        } catch (IOException | JAXBException e) {
+            e.printStackTrace();
+        }
+    }
 
-            jaxbMarshaller.marshal(sessionsData, file);
+    private static OutputStream openForWrite(File file) throws IOException {
+        return new BufferedOutputStream(
+            Channels.newOutputStream(FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)),
+            IO_BUFFER_SIZE);
+    }
 
-        } catch (JAXBException e) {
-            e.printStackTrace();
+    /**
+     * True if the file starts with BinaryBuilder's magic number.
+     */
+    private static boolean isBinary(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] head = new byte[BinaryBuilder.MAGIC.length];
+            int length = 0;
+            int n;
+            while (length < head.length && (n = in.read(head, length, head.length - length)) > 0) {
+                length += n;
+            }
+            return BinaryBuilder.isBinary(head, length);
         }
+    }
 
+    /**
+     * The whole file in one buffer.  Binary files are small.
+     */
+    private static ByteBuffer readAll(File file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    }
+
+    private static InputStream openForRead(File file) throws IOException {
+        return new BufferedInputStream(
+            Channels.newInputStream(FileChannel.open(file.toPath(), StandardOpenOption.READ)),
+            IO_BUFFER_SIZE);
     }
 
     /**
-     * Retrieve our data from an XML file.  This function is called 
+     * Marshal a single EditorSession to compact (not pretty printed) XML.
+     * Used for journal records.
+     * @param session
+     * @return XML bytes
+     * @throws JAXBException
+     */
+    static byte[] sessionToBytes(EditorSession session) throws JAXBException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        getMarshaller(false).marshal(session, bytes);
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Inverse of sessionToBytes.
+     * @param bytes
+     * @return EditorSession
+     * @throws JAXBException
+     */
+    static EditorSession sessionFromBytes(byte[] bytes) throws JAXBException {
+        return (EditorSession) getUnmarshaller().unmarshal(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Retrieve our data from an XML file.  This function is called
      * when the plugin is initializing and does not have a face.  So if we
      * get an exception we store it in the return struct EditorSessionsData.
-     * This will be picked up later and displayed to the user when they try to 
+     * This will be picked up later and displayed to the user when they try to
      * use the plugin.
-     * 
+     *
      * @param filePath
      * @return  EditorSessionsData, will not be null.  Check for error
      * status whenever this object is retrieved for use.
@@ -83,11 +243,15 @@ public class Builder {
                 return new EditorSessionsData();
             }
 
-            // Use Impl.  (BTW, JAXB doesn't handle interfaces.)
-            JAXBContext jaxbContext = JAXBContext.newInstance(EditorSessionsData.class);
-
-            Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-            sessionsData = (EditorSessionsData) jaxbUnmarshaller.unmarshal(file);
+            if (isBinary(file)) {
+                return BinaryBuilder.read(readAll(file));
+            }
+            try (InputStream in = openForRead(file)) {
+                sessionsData = StreamBuilder.read(in);
+            } catch (XMLStreamException e) {
+                // Something JAXB may still understand.  Let it have a go.
+                sessionsData = loadJaxbOrThrow(file);
+            }
 
             // If Anything bad happens, catch and stash
         } catch (Throwable t) {
@@ -100,4 +264,32 @@ public class Builder {
         return sessionsData;
     }
 
+    /**
+     * Load thru JAXB instead of the streaming reader.
+     * Kept for comparison (see HeapBenchmark and StreamTest).
+     * Errors are stashed in the result, same as load.
+     * @param filePath
+     * @return EditorSessionsData, will not be null.
+     */
+    public static EditorSessionsData loadJaxb(String filePath) {
+        try {
+            File file = new File(filePath);
+            if (!file.exists()) {
+                return new EditorSessionsData();
+            }
+            return loadJaxbOrThrow(file);
+        } catch (Throwable t) {
+            EditorSessionsData eData = new EditorSessionsData();
+            eData.setDataException(new TabsPluginException(t));
+            return eData;
+        }
+    }
+
+    private static EditorSessionsData loadJaxbOrThrow(File file)
+        throws IOException, JAXBException {
+        try (InputStream in = openForRead(file)) {
+            return (EditorSessionsData) getUnmarshaller().unmarshal(in);
+        }
+    }
+
 }
@@ -10,14 +10,15 @@
  */
 package co.spillikin.tools.eclipse.editortabs.util;
 
-import java.util.Set;
-import java.util.TreeSet;
+import java.io.IOException;
 
 import co.spillikin.tools.eclipse.editortabs.TabsPluginException;
 import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.SessionChanges;
 import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
 
 import static co.spillikin.tools.eclipse.editortabs.Constants.EX_PLUGIN_CANT_FIND_DATA;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SAVE_FLUSH_TIMEOUT_MS;
 
 /**
  * DataUtil.
@@ -133,6 +134,20 @@ public class DataUtil {
     // Full path to the XML data file to load/save
     private String dataFilePath = null;
 
+    // Journal in front of the XML file.  Saves append to this.
+    private SessionJournal journal = null;
+    // Writes to the journal in the background.
+    private SaveScheduler scheduler = null;
+
+    // Set after import.  The whole model was replaced so the next
+    // save writes a full checkpoint instead of journal records.
+    private boolean needsCheckpoint = false;
+
+    // EditorSessionsData.getModCount() as of the last save.
+    private long savedModCount = -1;
+    // Saves that found nothing to write.
+    private long skippedSaves = 0;
+
     /**
      * Initialize this DataContainer singleton by loading
      * and instantiating the underlying EditorSessionsData.
@@ -148,8 +163,10 @@ public class DataUtil {
      */
     private DataUtil( String dataFilePath) {
         this.dataFilePath = dataFilePath;
-        editorSessionData = Builder.load(dataFilePath);
-        
+        journal = new SessionJournal(dataFilePath);
+        scheduler = new SaveScheduler(journal);
+        editorSessionData = journal.load();
+
     }
 
     /**
@@ -164,13 +181,72 @@ public class DataUtil {
     private DataUtil(String dataFilePath, DataUtil oldUtil) {
         editorSessionData = Builder.load(dataFilePath);
         this.dataFilePath = oldUtil.dataFilePath;
+        this.journal = oldUtil.journal;
+        this.scheduler = oldUtil.scheduler;
+        this.needsCheckpoint = true;
     }
 
     /**
      * Save all data associated with this DataContainer.
+     * Normally only what changed since the last save is collected here,
+     * and appended to the journal in the background (see SaveScheduler).
      */
     public void save() {
-        Builder.save(editorSessionData, dataFilePath);
+        long modCount = editorSessionData.getModCount();
+        if (!needsCheckpoint) {
+            // Nothing was even touched.  Dialog cancelled and the like.
+            if (modCount == savedModCount) {
+                skippedSaves++;
+                return;
+            }
+            savedModCount = modCount;
+            // Touched sessions whose content didn't change are left out.
+            SessionChanges changes = editorSessionData.getSessionMap().takeChanges();
+            if (changes.isEmpty()) {
+                skippedSaves++;
+                return;
+            }
+            scheduler.schedule(changes);
+            return;
+        }
+        // Import replaced the whole model.  That's rare and the user
+        // just waited for the import to load, so write it out right here.
+        // Anything still queued for the old model goes first.
+        scheduler.flush(SAVE_FLUSH_TIMEOUT_MS);
+        try {
+            journal.checkpoint(editorSessionData);
+            needsCheckpoint = false;
+            savedModCount = modCount;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Number of saves that had nothing to write.
+     * @return
+     */
+    public long getSkippedSaves() {
+        return skippedSaves;
+    }
+
+    /**
+     * Number of times a session was touched but left out of a save
+     * because nothing in it really changed.
+     * @return
+     */
+    public long getSkippedSessionWrites() {
+        return editorSessionData.getSessionMap().getSkippedSessionWrites();
+    }
+
+    /**
+     * Called by the Activator during stop, after the final save.
+     * Writes anything still queued and closes the journal.  Will not
+     * hold up shutdown for long if a write is stuck.
+     */
+    public void close() {
+        scheduler.flush(SAVE_FLUSH_TIMEOUT_MS);
+        journal.close();
     }
 
     /**
@@ -207,13 +283,7 @@ public class DataUtil {
      * @return String[] String array of all tab group names.
      */
     public String[] getGroupNames() {
-        SessionMap sessionMap = editorSessionData.getSessionMap();
-        Set<String> keys = sessionMap.getSessionNames();
-        Set<String> orderedStringSet = new TreeSet<String>();
-        for (String key : keys) {
-            orderedStringSet.add(key.toString());
-        }
-        return (String[]) orderedStringSet.toArray(new String[0]);
+        return editorSessionData.getSessionMap().getSortedSessionNames();
     }
 
     /**
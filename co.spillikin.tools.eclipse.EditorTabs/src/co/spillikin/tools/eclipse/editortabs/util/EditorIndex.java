@@ -0,0 +1,160 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.text.ITextSelection;
+import org.eclipse.jface.viewers.ISelectionProvider;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.PartInitException;
+
+/**
+ * A look at the open editors, taken in one pass over the page's editor
+ * references, keyed by full path.
+ *
+ * PluginUtil used to walk every editor reference once for each open
+ * file to find its selection, which is quadratic in the number of tabs.
+ * Build one of these, ask it as many questions as needed, then throw
+ * it away.  It is not kept up to date, so build a new one after
+ * opening or closing editors.
+ *
+ * UI thread only, like everything else that touches the workbench.
+ *
+ * @author chris
+ *
+ */
+public class EditorIndex {
+
+    /**
+     * What we know about one open editor.
+     */
+    private static class Entry {
+        final IFile file;
+        final IEditorReference reference;
+        // Null if the editor was never shown (not restored yet).
+        final IEditorPart part;
+
+        Entry(IFile file, IEditorReference reference, IEditorPart part) {
+            this.file = file;
+            this.reference = reference;
+            this.part = part;
+        }
+    }
+
+    // Full path to editor, in tab order.
+    private final Map<String, Entry> editors = new LinkedHashMap<>();
+
+    /**
+     * Index the editors open on the given page.
+     * @param workbenchPage
+     */
+    public EditorIndex(IWorkbenchPage workbenchPage) {
+        for (IEditorReference er : workbenchPage.getEditorReferences()) {
+            IEditorInput ei = null;
+            try {
+                ei = er.getEditorInput();
+            } catch (PartInitException e) {
+                // nothing to do
+            }
+            // Null for things like the web browser.
+            IFile file = PluginUtil.getFileFromEditorInput(ei);
+            if (file == null) {
+                continue;
+            }
+            // Don't assume we get a IEditorPart.  false means don't
+            // restore it just to look at it.
+            IWorkbenchPart wp = er.getPart(false);
+            IEditorPart part = (wp instanceof IEditorPart) ? (IEditorPart) wp : null;
+            // Same file open twice, the first tab wins.
+            editors.putIfAbsent(file.getFullPath().toString(), new Entry(file, er, part));
+        }
+    }
+
+    /**
+     * Interface
+     * @return The open files in tab order.
+     */
+    public List<IFile> getFiles() {
+        List<IFile> files = new ArrayList<>(editors.size());
+        for (Entry entry : editors.values()) {
+            files.add(entry.file);
+        }
+        return files;
+    }
+
+    /**
+     * Interface
+     * @param fullPath
+     * @return The editor reference for the given file, or null if it
+     * isn't open.
+     */
+    public IEditorReference getReference(String fullPath) {
+        Entry entry = editors.get(fullPath);
+        return entry == null ? null : entry.reference;
+    }
+
+    /**
+     * Interface
+     * @param fullPath
+     * @return The editor for the given file, or null if it isn't open
+     * or hasn't been restored.
+     */
+    public IEditorPart getPart(String fullPath) {
+        Entry entry = editors.get(fullPath);
+        return entry == null ? null : entry.part;
+    }
+
+    /**
+     * Interface
+     * @param fullPath
+     * @return The selection provider of the editor for the given file,
+     * or null.
+     */
+    public ISelectionProvider getSelectionProvider(String fullPath) {
+        IEditorPart part = getPart(fullPath);
+        return part == null ? null : part.getSite().getSelectionProvider();
+    }
+
+    /**
+     * Interface
+     * @param fullPath
+     * @return The text selection (cursor) in the editor for the given
+     * file, or null if there isn't one.
+     */
+    public ITextSelection getTextSelection(String fullPath) {
+        ISelectionProvider is = getSelectionProvider(fullPath);
+        if (is != null) {
+            // This can come back as TreeSelection, causing a classCastException
+            Object selection = is.getSelection();
+            if (selection instanceof ITextSelection) {
+                return (ITextSelection) selection;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Interface
+     * @return number of open files.
+     */
+    public int size() {
+        return editors.size();
+    }
+}
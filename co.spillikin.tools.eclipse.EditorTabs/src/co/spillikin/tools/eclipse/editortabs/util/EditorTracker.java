@@ -0,0 +1,423 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.jface.text.ITextSelection;
+import org.eclipse.jface.viewers.ISelectionProvider;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IPartListener2;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.IWorkbenchPartReference;
+import org.eclipse.ui.PartInitException;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+
+/**
+ * Keeps track of the open editors as they open, close and get
+ * activated, so handlers don't have to enumerate the whole workbench
+ * every time one runs.
+ *
+ * Attached to one page.  The first attach takes one look at the page
+ * (EditorIndex), after that part events keep it current.  Part events
+ * only come for editors that were actually made though, a tab that
+ * was never shown can open or close without a word.  So before the
+ * open files are handed out they are checked against the page's own
+ * list of references (reconcile), by identity, one pass.  Knows:
+ *   the open files, in the order they were opened (or last put in
+ *   order, setOrder),
+ *   the order they were last activated in (most recent first),
+ *   the selected (last activated) file,
+ *   the last cursor seen for each file.
+ *
+ * Cursors move without any part event, so the cursor of an editor
+ * that is up is read fresh from its selection provider when a snapshot
+ * is taken.  That is one call per open file, not a walk of every
+ * editor reference per file.  The last cursor seen is used for editors
+ * that were never shown (not restored yet).
+ *
+ * UI thread only, like the part events themselves.
+ *
+ * @author chris
+ *
+ */
+public class EditorTracker implements IPartListener2 {
+
+    /**
+     * What we know about one open editor.
+     */
+    private static class Tracked {
+        final IFile file;
+        final IEditorReference reference;
+        // When last activated, from activations below.  0 if never.
+        long activated = 0;
+
+        Tracked(IFile file, IEditorReference reference) {
+            this.file = file;
+            this.reference = reference;
+        }
+    }
+
+    // The page we listen to.  Null until attached.
+    private IWorkbenchPage page = null;
+    // Full path to editor, in the order opened (or put in).
+    private final Map<String, Tracked> editors = new LinkedHashMap<>();
+    // Which path each reference is showing.  References don't
+    // implement equals, so by identity.
+    private final Map<IWorkbenchPartReference, String> paths = new IdentityHashMap<>();
+    // Counts activations, to order them.
+    private long activations = 0;
+    // Last cursor seen for each path.
+    private final Map<String, ITextSelection> cursors = new HashMap<>();
+    // Cursors to put into editors that haven't been made yet, the
+    // first time they show.
+    private final Map<String, ITextSelection> pending = new HashMap<>();
+    // Full path of the last activated editor.  Null if none.
+    private String selectedPath = null;
+
+    /**
+     * Interface
+     * Start tracking the given page, dropping any page tracked before.
+     * Does nothing if already tracking it.
+     * @param workbenchPage
+     */
+    public void attach(IWorkbenchPage workbenchPage) {
+        if (page == workbenchPage) {
+            return;
+        }
+        detach();
+        page = workbenchPage;
+        EditorIndex index = new EditorIndex(workbenchPage);
+        for (IFile file : index.getFiles()) {
+            String path = file.getFullPath().toString();
+            IEditorReference er = index.getReference(path);
+            editors.put(path, new Tracked(file, er));
+            paths.put(er, path);
+        }
+        activated(pathOf(workbenchPage.getActiveEditor()));
+        workbenchPage.addPartListener(this);
+    }
+
+    /**
+     * Interface
+     * Stop tracking and forget everything.
+     */
+    public void detach() {
+        if (page != null) {
+            page.removePartListener(this);
+        }
+        page = null;
+        editors.clear();
+        paths.clear();
+        cursors.clear();
+        pending.clear();
+        selectedPath = null;
+    }
+
+    /**
+     * Interface
+     * @return true if tracking the given page.
+     */
+    public boolean isAttachedTo(IWorkbenchPage workbenchPage) {
+        return page != null && page == workbenchPage;
+    }
+
+    /**
+     * Interface
+     * Start tracking editors opened without being made (opened
+     * lazily).  They send no partOpened until they are first shown,
+     * which may be never.
+     * @param refs As IWorkbenchPage.openEditors gave them back.  Nulls,
+     * for ones that failed to open, are skipped.
+     */
+    public void track(IWorkbenchPartReference[] refs) {
+        for (IWorkbenchPartReference ref : refs) {
+            if (ref instanceof IEditorReference && !paths.containsKey(ref)) {
+                track((IEditorReference) ref);
+            }
+        }
+    }
+
+    /**
+     * Interface
+     * The open files with their cursors, in the order they were opened
+     * (or put in).
+     * @return List<FileInfo>, a new list.
+     */
+    public List<FileInfo> getOpenFileList() {
+        reconcile();
+        List<FileInfo> fileInfoList = new ArrayList<>(editors.size());
+        for (Map.Entry<String, Tracked> entry : editors.entrySet()) {
+            fileInfoList.add(PluginUtil.toFileInfo(entry.getValue().file,
+                currentCursor(entry.getKey(), entry.getValue())));
+        }
+        return fileInfoList;
+    }
+
+    /**
+     * Interface
+     * @return Full path of the selected (last activated) editor, or null.
+     */
+    public String getSelectedEditor() {
+        return selectedPath;
+    }
+
+    /**
+     * Interface
+     * The tabs were moved, the open files are in this order now.
+     * Files not given keep their order, after the ones given.
+     * @param orderedPaths Full paths.
+     */
+    public void setOrder(List<String> orderedPaths) {
+        Map<String, Tracked> reordered = new LinkedHashMap<>();
+        for (String path : orderedPaths) {
+            Tracked tracked = editors.get(path);
+            if (tracked != null) {
+                reordered.put(path, tracked);
+            }
+        }
+        for (Map.Entry<String, Tracked> entry : editors.entrySet()) {
+            reordered.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        editors.clear();
+        editors.putAll(reordered);
+    }
+
+    /**
+     * Interface
+     * @return Full paths of the open files, most recently activated first.
+     */
+    public List<String> getActivationOrder() {
+        reconcile();
+        List<String> order = new ArrayList<>(editors.keySet());
+        // Stable, so never activated ones stay in the order opened.
+        order.sort((a, b) -> Long.compare(editors.get(b).activated, editors.get(a).activated));
+        return order;
+    }
+
+    /**
+     * Interface
+     * Use this as the file's cursor until its editor is up and can be
+     * asked.  For tabs opened lazily.
+     * @param fullPath
+     * @param selection
+     */
+    public void rememberCursor(String fullPath, ITextSelection selection) {
+        cursors.put(fullPath, selection);
+    }
+
+    /**
+     * Interface
+     * Put this cursor into the file's editor when it first shows.
+     * Remembered until then, as above.
+     * @param fullPath
+     * @param selection
+     */
+    public void restoreCursorWhenShown(String fullPath, ITextSelection selection) {
+        rememberCursor(fullPath, selection);
+        pending.put(fullPath, selection);
+    }
+
+    // Catch up with tabs that came or went without a part event.
+    // Restored at startup or opened lazily, then closed without ever
+    // being shown, there is no partClosed.  Opened lazily, there is no
+    // partOpened either.
+    private void reconcile() {
+        if (page == null) {
+            return;
+        }
+        IEditorReference[] refs = page.getEditorReferences();
+        Set<IWorkbenchPartReference> open = Collections.newSetFromMap(new IdentityHashMap<>());
+        Collections.addAll(open, refs);
+        List<IWorkbenchPartReference> gone = new ArrayList<>();
+        for (IWorkbenchPartReference ref : paths.keySet()) {
+            if (!open.contains(ref)) {
+                gone.add(ref);
+            }
+        }
+        for (IWorkbenchPartReference ref : gone) {
+            forget(ref);
+        }
+        for (IEditorReference er : refs) {
+            if (!paths.containsKey(er)) {
+                track(er);
+            }
+        }
+    }
+
+    // Read the cursor now if the editor is up, else the last one seen.
+    private ITextSelection currentCursor(String path, Tracked tracked) {
+        ITextSelection selection = readCursor(tracked.reference.getPart(false));
+        if (selection != null) {
+            cursors.put(path, selection);
+            return selection;
+        }
+        return cursors.get(path);
+    }
+
+    private static ITextSelection readCursor(IWorkbenchPart part) {
+        if (!(part instanceof IEditorPart)) {
+            return null;
+        }
+        ISelectionProvider is = ((IEditorPart) part).getSite().getSelectionProvider();
+        if (is == null) {
+            return null;
+        }
+        // This can come back as TreeSelection.
+        Object selection = is.getSelection();
+        return (selection instanceof ITextSelection) ? (ITextSelection) selection : null;
+    }
+
+    private static String pathOf(IEditorPart part) {
+        if (part == null) {
+            return null;
+        }
+        IFile file = PluginUtil.getFileFromEditorInput(part.getEditorInput());
+        return file == null ? null : file.getFullPath().toString();
+    }
+
+    // The given editor is now the selected one.  Null if the active
+    // editor isn't showing a file (web browser and such).
+    private void activated(String path) {
+        selectedPath = path;
+        Tracked tracked = (path == null) ? null : editors.get(path);
+        if (tracked != null) {
+            tracked.activated = ++activations;
+        }
+    }
+
+    // Forget a reference, and its file if no other reference shows it.
+    private void forget(IWorkbenchPartReference ref) {
+        String path = paths.remove(ref);
+        if (path == null) {
+            return;
+        }
+        Tracked tracked = editors.get(path);
+        if (tracked != null && tracked.reference == ref) {
+            editors.remove(path);
+            cursors.remove(path);
+            pending.remove(path);
+            if (path.equals(selectedPath)) {
+                selectedPath = null;
+            }
+            // Same file open in another tab, that one takes over.
+            for (Map.Entry<IWorkbenchPartReference, String> other : paths.entrySet()) {
+                if (path.equals(other.getValue())) {
+                    track((IEditorReference) other.getKey());
+                    break;
+                }
+            }
+        }
+    }
+
+    // Start tracking an editor reference.
+    private void track(IEditorReference er) {
+        IEditorInput ei = null;
+        try {
+            ei = er.getEditorInput();
+        } catch (PartInitException e) {
+            // nothing to do
+        }
+        // Null for things like the web browser.
+        IFile file = PluginUtil.getFileFromEditorInput(ei);
+        if (file == null) {
+            return;
+        }
+        String path = file.getFullPath().toString();
+        paths.put(er, path);
+        // Same file open twice, the first tab wins.
+        if (!editors.containsKey(path)) {
+            editors.put(path, new Tracked(file, er));
+        }
+    }
+
+    @Override
+    public void partOpened(IWorkbenchPartReference ref) {
+        if (ref instanceof IEditorReference && !paths.containsKey(ref)) {
+            track((IEditorReference) ref);
+        }
+    }
+
+    @Override
+    public void partClosed(IWorkbenchPartReference ref) {
+        forget(ref);
+    }
+
+    @Override
+    public void partActivated(IWorkbenchPartReference ref) {
+        // Views don't change the active editor.
+        if (ref instanceof IEditorReference) {
+            activated(paths.get(ref));
+        }
+    }
+
+    @Override
+    public void partBroughtToTop(IWorkbenchPartReference ref) {
+        // nothing to do
+    }
+
+    @Override
+    public void partDeactivated(IWorkbenchPartReference ref) {
+        remember(ref);
+    }
+
+    @Override
+    public void partHidden(IWorkbenchPartReference ref) {
+        remember(ref);
+    }
+
+    @Override
+    public void partVisible(IWorkbenchPartReference ref) {
+        // A lazy tab's editor gets made when it is first shown.
+        String path = paths.get(ref);
+        ITextSelection selection = (path == null) ? null : pending.remove(path);
+        IWorkbenchPart part = ref.getPart(false);
+        if (selection != null && part instanceof IEditorPart) {
+            ISelectionProvider is = ((IEditorPart) part).getSite().getSelectionProvider();
+            if (is != null) {
+                is.setSelection(selection);
+            }
+        }
+    }
+
+    @Override
+    public void partInputChanged(IWorkbenchPartReference ref) {
+        // Save As and the like.  Now showing another file.
+        if (ref instanceof IEditorReference) {
+            forget(ref);
+            track((IEditorReference) ref);
+        }
+    }
+
+    // Keep the cursor of an editor going out of view.
+    private void remember(IWorkbenchPartReference ref) {
+        String path = paths.get(ref);
+        if (path == null) {
+            return;
+        }
+        ITextSelection selection = readCursor(ref.getPart(false));
+        if (selection != null) {
+            cursors.put(path, selection);
+        }
+    }
+}
@@ -68,7 +68,9 @@ public class FailsafeUtil {
             // This will ignore if in snapshot mode.
             EditorSession editorSession = instance.fgData.getSessionMap().getCurrentEditorSession();
             // does nothing if in snapshot mode.
-            if (editorSession != null) {
+            // Not while a switch is still opening tabs, we'd save half
+            // the session as all of it.
+            if (editorSession != null && !instance.plugin.isOpeningSession()) {
                 editorSession.updateFilePathList(instance.plugin.getOpenFileList(),
                     instance.plugin.getSelectedEditor());
             }
@@ -0,0 +1,317 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.ui.IEditorInput;
+import org.eclipse.ui.ide.FileStoreEditorInput;
+import org.eclipse.ui.part.FileEditorInput;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.PATH_RESOLVE_MAX_STUCK;
+import static co.spillikin.tools.eclipse.editortabs.Constants.PATH_RESOLVE_THREADS;
+import static co.spillikin.tools.eclipse.editortabs.Constants.PATH_RESOLVE_TIMEOUT_MS;
+
+/**
+ * Works out where each file of a session lives (in the workspace,
+ * outside of it, or nowhere) several files at a time, off the UI
+ * thread.
+ *
+ * Checking a file can hang for seconds on a network mount that went
+ * away.  Each file gets PATH_RESOLVE_TIMEOUT_MS from when its check
+ * starts, after that it counts as UNREACHABLE and we move on.  Time
+ * spent queued for a thread doesn't count against it.
+ *
+ * A check stuck in the file system can't be interrupted, it holds its
+ * thread until it gives up.  So each one that times out gets the pool
+ * one more thread in its place, until it comes back.  That's bounded
+ * (PATH_RESOLVE_MAX_STUCK) so a dead mount can't pile up threads.
+ * Once the pool has given all it will, checks that still can't get a
+ * thread within a timeout of that count as UNREACHABLE too.
+ *
+ * The pool's threads are daemons and live as long as the plugin.
+ *
+ * @author chris
+ *
+ */
+public class PathResolver {
+
+    /**
+     * Where a file was found.
+     */
+    public enum Kind {
+        WORKSPACE, EXTERNAL, MISSING, UNREACHABLE
+    }
+
+    /**
+     * A file and what was found out about it.
+     */
+    public static final class Resolved {
+        private final FileInfo fileInfo;
+        private final Kind kind;
+        private final IEditorInput input;
+
+        public Resolved(FileInfo fileInfo, Kind kind, IEditorInput input) {
+            this.fileInfo = fileInfo;
+            this.kind = kind;
+            this.input = input;
+        }
+
+        public FileInfo getFileInfo() {
+            return fileInfo;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return Input to open the file with.  Null unless found.
+         */
+        public IEditorInput getInput() {
+            return input;
+        }
+
+        public boolean isFound() {
+            return kind == Kind.WORKSPACE || kind == Kind.EXTERNAL;
+        }
+    }
+
+    // Shared by every resolver.
+    private static final ThreadPoolExecutor POOL = createPool();
+    // Threads lost to checks that timed out and haven't come back.
+    // Guarded by POOL.
+    private static int stuck = 0;
+
+    private final Function<FileInfo, Resolved> check;
+    private final long timeoutMs;
+
+    /**
+     * Resolves files the way PluginUtil.openFile does.
+     */
+    public PathResolver() {
+        this(PathResolver::check, PATH_RESOLVE_TIMEOUT_MS);
+    }
+
+    /**
+     * For tests, or other ways of checking.
+     * @param check Resolves one file.  Runs on a pool thread.
+     * @param timeoutMs Longest to wait for one file.
+     */
+    public PathResolver(Function<FileInfo, Resolved> check, long timeoutMs) {
+        this.check = check;
+        this.timeoutMs = timeoutMs;
+    }
+
+    private static ThreadPoolExecutor createPool() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(PATH_RESOLVE_THREADS,
+            PATH_RESOLVE_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "Editor sessions path resolver");
+                t.setDaemon(true);
+                return t;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    // A check timed out and is holding its thread.  Give the pool one
+    // more, if it has any left to give.
+    private static boolean replaceStuckThread() {
+        synchronized (POOL) {
+            if (stuck >= PATH_RESOLVE_MAX_STUCK) {
+                return false;
+            }
+            stuck++;
+            // Max first, core may never be above it.
+            POOL.setMaximumPoolSize(PATH_RESOLVE_THREADS + stuck);
+            POOL.setCorePoolSize(PATH_RESOLVE_THREADS + stuck);
+            return true;
+        }
+    }
+
+    // A replaced check finally came back.  The extra thread goes away
+    // once it's idle.
+    private static void stuckThreadBack() {
+        synchronized (POOL) {
+            stuck--;
+            POOL.setCorePoolSize(PATH_RESOLVE_THREADS + stuck);
+            POOL.setMaximumPoolSize(PATH_RESOLVE_THREADS + stuck);
+        }
+    }
+
+    private static boolean noThreadsLeftToGive() {
+        synchronized (POOL) {
+            return stuck >= PATH_RESOLVE_MAX_STUCK;
+        }
+    }
+
+    /**
+     * One file's check, knowing when it started.
+     */
+    private final class Check implements Callable<Resolved> {
+        final FileInfo fi;
+        // 0 until it starts.
+        volatile long startNanos = 0;
+        // Both guarded by this.
+        boolean done = false;
+        boolean replaced = false;
+
+        Check(FileInfo fi) {
+            this.fi = fi;
+        }
+
+        @Override
+        public Resolved call() {
+            startNanos = Math.max(System.nanoTime(), 1);
+            try {
+                return check.apply(fi);
+            } finally {
+                synchronized (this) {
+                    done = true;
+                    if (replaced) {
+                        stuckThreadBack();
+                    }
+                }
+            }
+        }
+
+        boolean isStarted() {
+            return startNanos != 0;
+        }
+
+        // How much of its timeout is left.  All of it if not started.
+        long remainingMs() {
+            long start = startNanos;
+            if (start == 0) {
+                return timeoutMs;
+            }
+            return timeoutMs - (System.nanoTime() - start) / 1000000;
+        }
+
+        // Timed out.  If it's still stuck, its thread is replaced until
+        // it comes back.
+        synchronized void giveUp() {
+            if (!done) {
+                replaced = replaceStuckThread();
+            }
+        }
+    }
+
+    /**
+     * Interface
+     * Where one file lives.  Same rules as PluginUtil.openFile.
+     * Doesn't touch the UI, so any thread will do.
+     * @param fi
+     * @return Resolved, never null.
+     */
+    public static Resolved check(FileInfo fi) {
+        String pathStr = fi.getFullPath();
+        ResolutionCache cache = ResolutionCache.getInstance();
+        IFile file = cache.getFile(pathStr);
+        if (file.exists()) {
+            return new Resolved(fi, Kind.WORKSPACE, new FileEditorInput(file));
+        }
+        File fileToOpen = new File(pathStr);
+        if (fileToOpen.exists() && fileToOpen.isFile()) {
+            return new Resolved(fi, Kind.EXTERNAL,
+                new FileStoreEditorInput(cache.getStore(fileToOpen)));
+        }
+        return new Resolved(fi, Kind.MISSING, null);
+    }
+
+    /**
+     * Interface
+     * Resolve every file, several at once.  Blocks until all are done,
+     * timed out, or the monitor is cancelled.  One unit of work is
+     * reported per file.
+     *
+     * @param fileInfoList
+     * @param monitor May be null.
+     * @return One Resolved per file, in the same order.  Null if
+     * cancelled.
+     * @throws InterruptedException
+     */
+    public List<Resolved> resolve(List<FileInfo> fileInfoList, IProgressMonitor monitor)
+        throws InterruptedException {
+
+        List<Check> checks = new ArrayList<>(fileInfoList.size());
+        List<Future<Resolved>> futures = new ArrayList<>(fileInfoList.size());
+        for (FileInfo fi : fileInfoList) {
+            Check c = new Check(fi);
+            checks.add(c);
+            futures.add(POOL.submit(c));
+        }
+        List<Resolved> resolved = new ArrayList<>(fileInfoList.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                // The others keep going while we wait on this one, so
+                // a slow file costs its own time once, not once per file.
+                Resolved r = await(checks.get(i), futures.get(i), monitor);
+                if (r == null) {
+                    return null;
+                }
+                resolved.add(r);
+                if (monitor != null) {
+                    monitor.worked(1);
+                }
+            }
+        } finally {
+            // Cancelled or interrupted, don't leave work queued.
+            for (Future<Resolved> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return resolved;
+    }
+
+    // Wait for one check.  Null if cancelled.
+    private Resolved await(Check c, Future<Resolved> future, IProgressMonitor monitor)
+        throws InterruptedException {
+        while (true) {
+            if (monitor != null && monitor.isCanceled()) {
+                return null;
+            }
+            boolean started = c.isStarted();
+            try {
+                return future.get(Math.max(c.remainingMs(), 0), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                // The check itself blew up.  Can't be opened either way.
+                return new Resolved(c.fi, Kind.MISSING, null);
+            } catch (TimeoutException e) {
+                if (started) {
+                    // Had its full time since it started.
+                    future.cancel(true);
+                    c.giveUp();
+                    return new Resolved(c.fi, Kind.UNREACHABLE, null);
+                }
+                // Waited a whole timeout without getting a thread.  If
+                // the pool won't grow any more, stop waiting for one.
+                if (!c.isStarted() && noThreadsLeftToGive() && future.cancel(false)) {
+                    return new Resolved(c.fi, Kind.UNREACHABLE, null);
+                }
+            }
+        }
+    }
+}
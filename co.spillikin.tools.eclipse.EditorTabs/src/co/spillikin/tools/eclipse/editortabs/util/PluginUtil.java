@@ -14,26 +14,32 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.Set;
 import org.eclipse.core.filesystem.URIUtil;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.IPath;
-import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.IEditorDescriptor;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IEditorReference;
-import org.eclipse.ui.IEditorRegistry;
 import org.eclipse.ui.IFileEditorInput;
+import org.eclipse.ui.IMemento;
 import org.eclipse.ui.IURIEditorInput;
 import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPartReference;
+import org.eclipse.ui.MultiPartInitException;
 import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.XMLMemento;
+import org.eclipse.ui.editors.text.EditorsUI;
 import org.eclipse.ui.editors.text.ILocationProvider;
 import org.eclipse.ui.part.FileEditorInput;
 import org.eclipse.jface.text.BadLocationException;
@@ -44,10 +50,12 @@ import org.eclipse.core.runtime.Platform;
 import java.io.File;
 import org.eclipse.core.filesystem.EFS;
 import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.ui.ide.FileStoreEditorInput;
 import org.eclipse.ui.ide.IDE;
 
 import co.spillikin.tools.eclipse.editortabs.TabsPluginException;
 import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SwitchPlan;
 
 import static co.spillikin.tools.eclipse.editortabs.Constants.RESOURCE_FILE_NAME;
 import static co.spillikin.tools.eclipse.editortabs.Constants.ERROR_FATAL_TITLE_KEY;
@@ -87,6 +95,10 @@ public class PluginUtil {
     private ResourceBundle resBundle = null;
     // Error message if resource key can not be found for instance.
     private String resErrorMessage = null;
+    // Follows the open editors on the active page.
+    private EditorTracker tracker = new EditorTracker();
+    // The last session open started.  Null if none yet.
+    private SessionOpenJob openJob = null;
 
     /**
      * THis constructor is called only once.
@@ -126,15 +138,14 @@ public class PluginUtil {
      */
     public boolean openFile(String pathStr) {
 
-        Path path = new Path(pathStr);
-        IFile file = ResourcesPlugin.getWorkspace().getRoot().getFile(path);
+        ResolutionCache cache = ResolutionCache.getInstance();
+        IFile file = cache.getFile(pathStr);
         IWorkbenchPage workbenchPage = PlatformUI.getWorkbench().getActiveWorkbenchWindow()
             .getActivePage();
-        IEditorRegistry editorRegistry = PlatformUI.getWorkbench().getEditorRegistry();
-        IEditorDescriptor desc = editorRegistry.getDefaultEditor(file.getName());
 
         // Open this way if the path exists in the workspace (IFile is a real IFile)
         if (file.exists()) {
+            IEditorDescriptor desc = cache.getDefaultEditor(file.getName());
             try {
                 // workspace we get a CoreException (Can not determine URI) if doesn't exist.
                 // This will not throw for some reason if the file is outside the 
@@ -149,7 +160,7 @@ public class PluginUtil {
         } else {
             File fileToOpen = new File(pathStr);
             if (fileToOpen.exists() && fileToOpen.isFile()) {
-                IFileStore fileStore = EFS.getLocalFileSystem().getStore(fileToOpen.toURI());
+                IFileStore fileStore = cache.getStore(fileToOpen);
                 try {
                     IDE.openEditorOnFileStore(workbenchPage, fileStore);
                 } catch (PartInitException e2) {
@@ -187,66 +198,298 @@ public class PluginUtil {
     }
 
     /**
-     * Open all the FileInfo in a list in the Eclipse editor window.
+     * Make the open tabs the given list, without closing and reopening
+     * the tabs it shares with what is open now.  Those keep their
+     * editors (and undo history, folding, everything), only their
+     * cursors are put back.  Tabs not in the list are closed, asking
+     * to save if needed, files not open yet are opened.
      * Select the given current editor (or don't if null)
      * 
-     * @param FileInfo
-     * @return
+     * Tabs are never closed and reopened just to put them in order,
+     * if order matters they are moved in place (reorderEditors).
+     * 
+     * New files are opened by a SessionOpenJob, so this returns
+     * before they are all up.  That puts the tabs in order when done.
+     * One still opening from the last switch is cancelled first, it
+     * opens nothing more.
+     * 
+     * @param fileInfoList Files wanted, in the order wanted.
+     * @param filePath Editor to select.  May be null.
+     * @param keepOrder true if the list order matters (keepAlphabetical).
+     * @return true if every tab that had to close did.
      */
-    public boolean openFileList(List<FileInfo> fileInfoList, String filePath) {
+    public boolean switchFileList(List<FileInfo> fileInfoList, String filePath,
+        boolean keepOrder) {
 
         boolean retVal = true;
+        // Cancel returns right away.  The job notices before its next
+        // batch, and the new one waits for it to stop (see SessionOpenJob).
+        if (openJob != null) {
+            openJob.cancel();
+            openJob = null;
+        }
+        IWorkbenchPage workbenchPage = getActivePage();
+        List<String> openPaths = new ArrayList<>();
+        for (IFile file : new EditorIndex(workbenchPage).getFiles()) {
+            openPaths.add(file.getFullPath().toString());
+        }
+        SwitchPlan plan = new SwitchPlan(openPaths, fileInfoList, keepOrder);
+
+        if (!closeEditors(workbenchPage, plan.getToClose())) {
+            retVal = false;
+        }
+        List<String> order = new ArrayList<>(fileInfoList.size());
         for (FileInfo fi : fileInfoList) {
-            if (!openFile(fi)) {
-                retVal = false;
+            order.add(fi.getFullPath());
+        }
+        // Opening can take a while, it goes in the background.  It
+        // opens and selects filePath first if it's one of them.
+        if (!plan.getToOpen().isEmpty()) {
+            SessionOpenJob job = new SessionOpenJob(this, PlatformUI.getWorkbench().getDisplay(),
+                plan.getToOpen(), filePath);
+            if (keepOrder) {
+                job.setFinalOrder(order);
             }
+            job.schedule();
+            openJob = job;
+        } else if (!plan.getToMove().isEmpty()) {
+            reorderEditors(order);
         }
-        selectEditor(filePath);
+        // Kept tabs get the session's cursors back.  One that was opened
+        // lazily and never shown has no editor yet, it gets its cursor
+        // when it first shows up.
+        EditorIndex index = new EditorIndex(workbenchPage);
+        for (FileInfo fi : plan.getKept()) {
+            if (!hasCursor(fi)) {
+                continue;
+            }
+            if (index.getPart(fi.getFullPath()) != null) {
+                setTextSelectionForFile(fi, index);
+            } else {
+                getTracker().restoreCursorWhenShown(fi.getFullPath(), toTextSelection(fi));
+            }
+        }
+        selectEditor(filePath, index);
         return retVal;
     }
 
     /**
-     * Get a list of currently open editor files.
-     * Returns a "native" Eclipse PDE list of IFile.
+     * Interface
+     * @return true while a session's files are still being opened
+     * (switchFileList).  What's open then is only part of the session.
+     */
+    public boolean isOpeningSession() {
+        return openJob != null && openJob.getState() != Job.NONE;
+    }
+
+    /**
+     * Put the open tabs in the given order, moving them in place.
+     * Nothing is closed or reopened.  Files not open are skipped, open
+     * files not given are left alone.
      * 
-     * @return List<IFile>
+     * @param orderedPaths Full paths in the order wanted.
+     * @return false if the tabs couldn't be moved.
      */
-    public List<IFile> getOpenEclipseEditorFileList() {
+    public boolean reorderEditors(List<String> orderedPaths) {
+        if (TabReorderer.reorder(getActivePage(), orderedPaths) < 0) {
+            return false;
+        }
+        getTracker().setOrder(orderedPaths);
+        return true;
+    }
 
-        List<IFile> fileList = new ArrayList<IFile>();
-        IEditorReference[] erList = PlatformUI.getWorkbench().getActiveWorkbenchWindow()
-            .getActivePage().getEditorReferences();
-        for (IEditorReference er : erList) {
+    /**
+     * Open all the FileInfo in a list without making their editors.
+     * Their inputs have already been found (PathResolver), maybe on
+     * another thread.
+     * 
+     * The tabs show up right away, but each editor is only made the
+     * first time its tab is activated, the same way Eclipse restores
+     * its own workbench.  A 200 file session costs one editor, not 200.
+     * 
+     * The cursor goes into the memento each editor is made from (the
+     * same keys AbstractTextEditor saves), so it is put back when the
+     * editor is finally made, not now.
+     * 
+     * Files with an external (system) editor are opened the usual way,
+     * there is no tab to be lazy about.
+     * 
+     * @param fileInfoList
+     * @param editorInputs One per file.
+     * @param filePath Editor to activate (the only one made now).
+     * May be null, then the first one.
+     * @return true if every file opened.
+     */
+    boolean openInputsLazily(List<FileInfo> fileInfoList, List<IEditorInput> editorInputs,
+        String filePath) {
+
+        boolean retVal = true;
+        List<IEditorInput> inputs = new ArrayList<>(fileInfoList.size());
+        List<String> ids = new ArrayList<>(fileInfoList.size());
+        List<IMemento> mementos = new ArrayList<>(fileInfoList.size());
+        List<FileInfo> opening = new ArrayList<>(fileInfoList.size());
+        int activationIndex = 0;
+        for (int i = 0; i < fileInfoList.size(); i++) {
+            FileInfo fi = fileInfoList.get(i);
+            IEditorInput input = editorInputs.get(i);
+            IEditorDescriptor desc = getEditorDescriptor(input);
+            if (desc == null || !desc.isInternal()) {
+                if (!openFile(fi)) {
+                    retVal = false;
+                }
+                continue;
+            }
+            if (fi.getFullPath().equals(filePath)) {
+                activationIndex = inputs.size();
+            }
+            inputs.add(input);
+            ids.add(desc.getId());
+            mementos.add(toMemento(fi));
+            opening.add(fi);
+        }
+        if (inputs.isEmpty()) {
+            return retVal;
+        }
+        IWorkbenchPartReference[] opened;
+        try {
+            opened = getActivePage().openEditors(
+                inputs.toArray(new IEditorInput[inputs.size()]),
+                ids.toArray(new String[ids.size()]),
+                mementos.toArray(new IMemento[mementos.size()]), IWorkbenchPage.MATCH_INPUT,
+                activationIndex);
+        } catch (MultiPartInitException e) {
+            // Some did open, they're fine.
+            opened = e.getReferences();
+            retVal = false;
+        }
+        // Tabs that aren't shown send no partOpened, tell the tracker
+        // now.  Otherwise the next update would drop them from the session.
+        EditorTracker editorTracker = getTracker();
+        editorTracker.track(opened);
+        // Until an editor is made, its cursor is the one it will be
+        // made with.  Otherwise the next update would save it as empty.
+        for (FileInfo fi : opening) {
+            if (hasCursor(fi)) {
+                editorTracker.rememberCursor(fi.getFullPath(), toTextSelection(fi));
+            }
+        }
+        return retVal;
+    }
+
+    // true if the input opens in a tab (an editor inside Eclipse), not
+    // a system editor.
+    boolean hasInternalEditor(IEditorInput input) {
+        IEditorDescriptor desc = getEditorDescriptor(input);
+        return desc != null && desc.isInternal();
+    }
+
+    // The editor openFile would use for an input.  Falls back on the
+    // text editor.
+    private IEditorDescriptor getEditorDescriptor(IEditorInput input) {
+        IEditorDescriptor desc = null;
+        if (input instanceof FileStoreEditorInput) {
+            try {
+                desc = IDE.getEditorDescriptorForFileStore(
+                    EFS.getLocalFileSystem().getStore(((FileStoreEditorInput) input).getURI()),
+                    true);
+            } catch (PartInitException e) {
+                // nothing to do
+            }
+        } else {
+            desc = ResolutionCache.getInstance().getDefaultEditor(input.getName());
+        }
+        if (desc == null) {
+            desc = PlatformUI.getWorkbench().getEditorRegistry()
+                .findEditor(EditorsUI.DEFAULT_TEXT_EDITOR_ID);
+        }
+        return desc;
+    }
+
+    // A cursor worth restoring.  No isEmpty counts as empty, and an
+    // entry without an offset or length (older files) has nothing to
+    // restore.  Unboxing either would throw and stop the whole open.
+    private static boolean hasCursor(FileInfo fi) {
+        return Boolean.FALSE.equals(fi.getIsEmpty()) && fi.getOffset() != null
+            && fi.getLength() != null;
+    }
+
+    // What IWorkbenchPage.getEditorState would give for an editor
+    // showing this cursor.  Text editors read the selection back out
+    // of editorState when they're made.
+    private static IMemento toMemento(FileInfo fi) {
+        XMLMemento memento = XMLMemento.createWriteRoot("editor");
+        IMemento state = memento.createChild("editorState");
+        if (hasCursor(fi)) {
+            state.putInteger("selectionOffset", fi.getOffset());
+            state.putInteger("selectionLength", fi.getLength());
+        }
+        return memento;
+    }
+
+    // Close every tab showing one of the given paths, a file open
+    // twice goes away twice.  One pass over the editors.
+    // false if the user cancelled a save.
+    private boolean closeEditors(IWorkbenchPage workbenchPage, List<String> fullPaths) {
+        if (fullPaths.isEmpty()) {
+            return true;
+        }
+        Set<String> closing = new HashSet<>(fullPaths);
+        List<IEditorReference> refs = new ArrayList<>();
+        for (IEditorReference er : workbenchPage.getEditorReferences()) {
             IEditorInput ei = null;
             try {
                 ei = er.getEditorInput();
-            } catch (PartInitException e1) {
+            } catch (PartInitException e) {
                 // nothing to do
             }
-            if (ei != null) {
-                IFile file = getFileFromEditorInput(ei);
-                if (file != null) {
-                    fileList.add(file);
-                }
+            IFile file = getFileFromEditorInput(ei);
+            if (file != null && closing.contains(file.getFullPath().toString())) {
+                refs.add(er);
             }
         }
-        return fileList;
+        // true means save contents of editors.
+        return workbenchPage.closeEditors(refs.toArray(new IEditorReference[refs.size()]), true);
+    }
+
+    /**
+     * Get a list of currently open editor files.
+     * Returns a "native" Eclipse PDE list of IFile.
+     * 
+     * @return List<IFile>
+     */
+    public List<IFile> getOpenEclipseEditorFileList() {
+        return new EditorIndex(getActivePage()).getFiles();
     }
 
     /**
      * Return the open set of files as a list of FileInfo, complete
-     * with cursor position information.
+     * with cursor position information, in the order opened.
+     * Comes from the EditorTracker, which part events keep current, so
+     * the workbench isn't walked every time a handler runs.
      * 
      * @return List<FileInfo>
      */
     public List<FileInfo> getOpenFileList() {
-        List<IFile> fileList = getOpenEclipseEditorFileList();
-        List<FileInfo> fileInfoList = new ArrayList<FileInfo>();
-        for (IFile file : fileList) {
-            FileInfo fi = iFileToFileInfo(file);
-            fileInfoList.add(fi);
+        return getTracker().getOpenFileList();
+    }
+
+    // Everything here works on the active page.
+    private IWorkbenchPage getActivePage() {
+        return PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
+    }
+
+    /**
+     * The tracker, attached to the active page.  Switching windows
+     * moves it to the new page, which is one walk of that page's
+     * editors.
+     * @return EditorTracker
+     */
+    public EditorTracker getTracker() {
+        IWorkbenchPage workbenchPage = getActivePage();
+        if (!tracker.isAttachedTo(workbenchPage)) {
+            tracker.attach(workbenchPage);
         }
-        return fileInfoList;
+        return tracker;
     }
 
     /**
@@ -254,19 +497,7 @@ public class PluginUtil {
      * May return null if all editors are closed.
      */
     public String getSelectedEditor() {
-        IWorkbenchPage workbenchPage = PlatformUI.getWorkbench().getActiveWorkbenchWindow()
-            .getActivePage();
-        IEditorPart p = workbenchPage.getActiveEditor();
-        // If no editors are opened p will be null.
-        if (p == null) {
-            return null;
-        }
-        IEditorInput ei = p.getEditorInput();
-        IFile file = getFileFromEditorInput(ei);
-        if (file == null) {
-            return null;
-        }
-        return file.getFullPath().toString();
+        return getTracker().getSelectedEditor();
     }
 
     /**
@@ -279,57 +510,43 @@ public class PluginUtil {
         if (filePath == null) {
             return;
         }
-        IWorkbenchPage workbenchPage = PlatformUI.getWorkbench().getActiveWorkbenchWindow()
-            .getActivePage();
-        IEditorReference[] erList = workbenchPage.getEditorReferences();
-        // Loop thru editor references and try to match path.
-        for (IEditorReference er : erList) {
-            IEditorInput ei = null;
-            try {
-                ei = er.getEditorInput();
-            } catch (PartInitException e1) {
-                // nothing to do
-                return;
-            }
-            if (ei != null) {
-                IFile file = getFileFromEditorInput(ei);
-                if (file == null) {
-                    continue;
-                }
-                String path = file.getFullPath().toString();
-                if (path.equals(filePath)) {
-                    // Returns the editor referenced by this object. Returns null 
-                    // if the editor was not instantiated or it failed to be restored. 
-                    // Tries to restore the editor if restore is true.
-                    IEditorPart ep = er.getEditor(false);
-                    if (ep == null) {
-                        return;
-                    }
-                    workbenchPage.activate(ep);
-                    // redundant?
-                    // ep.setFocus();
-
-                    return;
-                }
-            }
+        selectEditor(filePath, new EditorIndex(getActivePage()));
+    }
+
+    // selectEditor using an index the caller already has.
+    private void selectEditor(String filePath, EditorIndex index) {
+        if (filePath == null) {
+            return;
         }
+        IEditorReference er = index.getReference(filePath);
+        if (er == null) {
+            return;
+        }
+        // Returns the editor referenced by this object. Returns null 
+        // if the editor was not instantiated or it failed to be restored. 
+        // Tries to restore the editor if restore is true.
+        // A tab opened lazily has no editor yet.  Make this one, it's
+        // about to be shown anyway.
+        IEditorPart ep = er.getEditor(true);
+        if (ep == null) {
+            return;
+        }
+        getActivePage().activate(ep);
+        // redundant?
+        // ep.setFocus();
     }
 
     /**
-     * Convert an Eclipse IFile to a FileInfo object.
+     * Convert an Eclipse IFile and its cursor to a FileInfo object.
      * 
      * @param file
+     * @param selection Cursor in the file's editor.  May be null.
      * @return
      */
-    private FileInfo iFileToFileInfo(IFile file) {
+    static FileInfo toFileInfo(IFile file, ITextSelection selection) {
 
         String fullPath = file.getFullPath().toString();
         String name = file.getName();
-        ITextSelection selection = null;
-        try {
-            selection = getTextSelectionForPath(fullPath);
-        } catch (PartInitException | BadLocationException e) {
-        }
         // If we got an error or it came back null, set to 
         // empty so we won't attempt to select.
         if (selection == null) {
@@ -409,33 +626,7 @@ public class PluginUtil {
      */
     public ISelectionProvider getSelectionProviderForPath(String fullPath)
         throws PartInitException, BadLocationException {
-
-        IWorkbenchPage workbenchPage = PlatformUI.getWorkbench().getActiveWorkbenchWindow()
-            .getActivePage();
-        IEditorReference[] erList = workbenchPage.getEditorReferences();
-        // Loop thru open tabs till we find our IFile
-        for (IEditorReference editorRef : erList) {
-            IEditorInput ei = null;
-            ei = editorRef.getEditorInput();
-            if (ei != null) {
-                IFile file = getFileFromEditorInput(ei);
-                if (file == null) {
-                    continue;
-                }
-                // if we found it, get it's ITextSelection
-                String p = file.getFullPath().toString();
-                if (fullPath.equals(p)) {
-                    // Don't assume we get a IEditorPart
-                    Object ep = editorRef.getPart(false);
-                    if (ep instanceof IEditorPart) {
-                        IEditorPart editorPart = (IEditorPart) ep;
-                        return editorPart.getSite().getSelectionProvider();
-                    }
-                    return null;
-                }
-            }
-        }
-        return null;
+        return new EditorIndex(getActivePage()).getSelectionProvider(fullPath);
     }
 
     /**
@@ -454,19 +645,7 @@ public class PluginUtil {
      */
     public ITextSelection getTextSelectionForPath(String fullPath)
         throws PartInitException, BadLocationException {
-
-        ISelectionProvider is = getSelectionProviderForPath(fullPath);
-
-        if (is != null) {
-            // This can come back as TreeSelection, causing a classCastException
-            // This caused an intermittent mystery error for a while.
-            Object selection = is.getSelection();
-            if (selection instanceof ITextSelection) {
-                return (ITextSelection) selection;
-            }
-        }
-        return null;
-
+        return new EditorIndex(getActivePage()).getTextSelection(fullPath);
     }
 
     /**
@@ -484,14 +663,28 @@ public class PluginUtil {
      */
     public boolean setTextSelectionForFile(FileInfo fi)
         throws PartInitException, BadLocationException {
+        return setTextSelectionForFile(fi, new EditorIndex(getActivePage()));
+    }
 
-        String fullPath = fi.getFullPath();
-        ISelectionProvider is = getSelectionProviderForPath(fullPath);
+    // setTextSelectionForFile using an index the caller already has.
+    private boolean setTextSelectionForFile(FileInfo fi, EditorIndex index) {
+
+        ISelectionProvider is = index.getSelectionProvider(fi.getFullPath());
         if (is == null) {
             return false;
         }
+        is.setSelection(toTextSelection(fi));
+        return true;
+    }
+
+    /**
+     * Convert a FileInfo back to the ITextSelection it was made from.
+     * @param fi
+     * @return ITextSelection
+     */
+    static ITextSelection toTextSelection(FileInfo fi) {
 
-        ITextSelection itSel = new ITextSelection() {
+        return new ITextSelection() {
             @Override
             public int getEndLine() {
                 return fi.getEndLine();
@@ -522,9 +715,6 @@ public class PluginUtil {
                 return fi.getText();
             }
         };
-
-        is.setSelection(itSel);
-        return true;
     }
 
     /**
@@ -0,0 +1,301 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.content.IContentType;
+import org.eclipse.core.runtime.content.IContentTypeManager;
+import org.eclipse.core.runtime.content.IContentTypeManager.IContentTypeChangeListener;
+import org.eclipse.ui.IEditorDescriptor;
+import org.eclipse.ui.IEditorRegistry;
+import org.eclipse.ui.IFileEditorMapping;
+import org.eclipse.ui.IPropertyListener;
+import org.eclipse.ui.PlatformUI;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.RESOLUTION_CACHE_MAX_PATHS;
+
+/**
+ * Remembers what opening a file looks up every time: the default
+ * editor for its name, and its IFile or IFileStore handle.  Reopening a
+ * session asks the same questions over and over.
+ *
+ * Editors are kept by extension, along with the content type that
+ * extension gives.  Some names have an editor or content type of their
+ * own (pom.xml, Makefile), those are kept by the whole name.  The
+ * editor registry or content types changing throws them all away.
+ *
+ * Handles are kept by full path.  A handle is only a name, it doesn't
+ * say whether the file is there (that is still checked every time),
+ * but a resource delta under a path drops it anyway.  No more than
+ * RESOLUTION_CACHE_MAX_PATHS are kept, past that they are all dropped.
+ *
+ * Hit and miss counts, for seeing what it buys when a session is
+ * reopened, see toString.
+ *
+ * Handles can be asked for from any thread, editors from the UI thread.
+ *
+ * @author chris
+ *
+ */
+public final class ResolutionCache {
+
+    // Singleton
+    private static ResolutionCache instance = null;
+
+    /**
+     * Interface
+     * @return the cache, made on first use.
+     */
+    public static synchronized ResolutionCache getInstance() {
+        if (instance == null) {
+            instance = new ResolutionCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Interface
+     * Stop listening and forget everything.  Called when the plugin stops.
+     */
+    public static synchronized void disposeInstance() {
+        if (instance != null) {
+            instance.dispose();
+            instance = null;
+        }
+    }
+
+    // Stands in for "no default editor", the maps can't hold null.
+    private static final Object NONE = new Object();
+
+    private final Map<String, IFile> files = new ConcurrentHashMap<>();
+    private final Map<String, IFileStore> stores = new ConcurrentHashMap<>();
+    // Extension or whole name to IEditorDescriptor or NONE.  UI thread.
+    private final Map<String, Object> descriptors = new ConcurrentHashMap<>();
+    // Names with an editor or content type of their own.  Null until
+    // needed, and after the registry changes.  UI thread.
+    private Set<String> specialNames = null;
+
+    private final AtomicLong descriptorHits = new AtomicLong();
+    private final AtomicLong descriptorMisses = new AtomicLong();
+    private final AtomicLong handleHits = new AtomicLong();
+    private final AtomicLong handleMisses = new AtomicLong();
+
+    private final IResourceChangeListener resourceListener = this::resourceChanged;
+    private final IPropertyListener registryListener = (source, propId) -> {
+        if (propId == IEditorRegistry.PROP_CONTENTS) {
+            clearDescriptors();
+        }
+    };
+    private final IContentTypeChangeListener contentTypeListener = event -> clearDescriptors();
+    // The registry listener goes on when first needed, from the UI thread.
+    private boolean listeningToRegistry = false;
+
+    private ResolutionCache() {
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(resourceListener,
+            IResourceChangeEvent.POST_CHANGE);
+        Platform.getContentTypeManager().addContentTypeChangeListener(contentTypeListener);
+    }
+
+    private void dispose() {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(resourceListener);
+        Platform.getContentTypeManager().removeContentTypeChangeListener(contentTypeListener);
+        if (listeningToRegistry && PlatformUI.isWorkbenchRunning()) {
+            PlatformUI.getWorkbench().getEditorRegistry().removePropertyListener(registryListener);
+        }
+        files.clear();
+        stores.clear();
+        clearDescriptors();
+    }
+
+    /**
+     * Interface
+     * @param fullPath Workspace full path.
+     * @return IFile handle for it.  May not exist.
+     */
+    public IFile getFile(String fullPath) {
+        IFile file = files.get(fullPath);
+        if (file != null) {
+            handleHits.incrementAndGet();
+            return file;
+        }
+        handleMisses.incrementAndGet();
+        file = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(fullPath));
+        put(files, fullPath, file);
+        return file;
+    }
+
+    /**
+     * Interface
+     * @param file Local file outside the workspace.
+     * @return IFileStore handle for it.
+     */
+    public IFileStore getStore(File file) {
+        String key = file.getPath();
+        IFileStore store = stores.get(key);
+        if (store != null) {
+            handleHits.incrementAndGet();
+            return store;
+        }
+        handleMisses.incrementAndGet();
+        store = EFS.getLocalFileSystem().getStore(file.toURI());
+        put(stores, key, store);
+        return store;
+    }
+
+    private <T> void put(Map<String, T> map, String key, T value) {
+        if (map.size() >= RESOLUTION_CACHE_MAX_PATHS) {
+            map.clear();
+        }
+        map.put(key, value);
+    }
+
+    /**
+     * Interface
+     * Same answer as IEditorRegistry.getDefaultEditor(fileName),
+     * asked once per extension.  UI thread.
+     * @param fileName
+     * @return IEditorDescriptor, or null if there is no default.
+     */
+    public IEditorDescriptor getDefaultEditor(String fileName) {
+        IEditorRegistry registry = PlatformUI.getWorkbench().getEditorRegistry();
+        if (!listeningToRegistry) {
+            registry.addPropertyListener(registryListener);
+            listeningToRegistry = true;
+        }
+        String key = descriptorKey(registry, fileName);
+        Object desc = descriptors.get(key);
+        if (desc != null) {
+            descriptorHits.incrementAndGet();
+        } else {
+            descriptorMisses.incrementAndGet();
+            IContentType contentType = Platform.getContentTypeManager()
+                .findContentTypeFor(fileName);
+            desc = registry.getDefaultEditor(fileName, contentType);
+            descriptors.put(key, desc == null ? NONE : desc);
+        }
+        return desc == NONE ? null : (IEditorDescriptor) desc;
+    }
+
+    // The whole name if it is special, else "*." and the extension.
+    private String descriptorKey(IEditorRegistry registry, String fileName) {
+        if (specialNames == null) {
+            specialNames = findSpecialNames(registry);
+        }
+        if (specialNames.contains(fileName)) {
+            return fileName;
+        }
+        int dot = fileName.lastIndexOf('.');
+        // No extension, the name is all there is.
+        return dot < 0 ? fileName : "*" + fileName.substring(dot);
+    }
+
+    private static Set<String> findSpecialNames(IEditorRegistry registry) {
+        Set<String> names = new HashSet<>();
+        for (IFileEditorMapping mapping : registry.getFileEditorMappings()) {
+            if (!"*".equals(mapping.getName())) {
+                names.add(mapping.getLabel());
+            }
+        }
+        IContentTypeManager manager = Platform.getContentTypeManager();
+        for (IContentType contentType : manager.getAllContentTypes()) {
+            for (String name : contentType.getFileSpecs(IContentType.FILE_NAME_SPEC)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private void clearDescriptors() {
+        descriptors.clear();
+        specialNames = null;
+    }
+
+    // Drop handles under anything added, removed or moved.
+    private void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null || files.isEmpty()) {
+            return;
+        }
+        try {
+            delta.accept(d -> {
+                if (d.getKind() == IResourceDelta.CHANGED
+                    && (d.getFlags() & (IResourceDelta.OPEN | IResourceDelta.MOVED_FROM
+                        | IResourceDelta.MOVED_TO)) == 0) {
+                    // Only content changed here, look further down.
+                    return true;
+                }
+                IResource resource = d.getResource();
+                String path = resource.getFullPath().toString();
+                if (resource.getType() == IResource.FILE) {
+                    files.remove(path);
+                } else {
+                    String prefix = path.endsWith("/") ? path : path + "/";
+                    files.keySet().removeIf(p -> p.startsWith(prefix));
+                }
+                return false;
+            });
+        } catch (CoreException e) {
+            e.printStackTrace();
+            files.clear();
+        }
+    }
+
+    /**
+     * Interface
+     * @return lookups answered from the cache.
+     */
+    public long getHits() {
+        return descriptorHits.get() + handleHits.get();
+    }
+
+    /**
+     * Interface
+     * @return lookups that had to be done.
+     */
+    public long getMisses() {
+        return descriptorMisses.get() + handleMisses.get();
+    }
+
+    /**
+     * Interface
+     * Start counting again, before reopening a session say.
+     */
+    public void resetCounters() {
+        descriptorHits.set(0);
+        descriptorMisses.set(0);
+        handleHits.set(0);
+        handleMisses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Resolution cache: editors " + descriptorHits.get() + " hits "
+            + descriptorMisses.get() + " misses, handles " + handleHits.get() + " hits "
+            + handleMisses.get() + " misses";
+    }
+}
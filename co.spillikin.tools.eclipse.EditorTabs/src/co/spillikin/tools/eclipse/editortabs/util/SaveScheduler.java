@@ -0,0 +1,140 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.IOException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import co.spillikin.tools.eclipse.editortabs.model.SessionChanges;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.SAVE_DELAY_MS;
+
+/**
+ * Takes saves off the UI thread.
+ *
+ * Every handler ends with a save.  The handler only collects what
+ * changed (SessionMap.takeChanges, which copies the changed sessions)
+ * and hands it here.  A background job writes it to the journal a
+ * little later.  Changes handed in while the job is waiting are merged
+ * into one write.
+ *
+ * On shutdown flush() writes whatever is still pending, but will not
+ * wait more than the given time for a write already in progress.
+ *
+ * @author chris
+ *
+ */
+public class SaveScheduler {
+
+    private final SessionJournal journal;
+    private final Job saveJob;
+
+    // Changes taken but not written yet.  Guarded by this.
+    private SessionChanges pending = null;
+    // True while changes are being written.  Guarded by this.
+    private boolean writing = false;
+
+    /**
+     * @param journal where the changes go.
+     */
+    public SaveScheduler(SessionJournal journal) {
+        this.journal = journal;
+        saveJob = new Job("Saving editor sessions") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                write();
+                return Status.OK_STATUS;
+            }
+        };
+        saveJob.setSystem(true);
+    }
+
+    /**
+     * Queue changes to be written in the background.  Returns at once.
+     * @param changes from SessionMap.takeChanges()
+     */
+    public void schedule(SessionChanges changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (pending == null) {
+                pending = changes;
+            } else {
+                pending.merge(changes);
+            }
+        }
+        saveJob.schedule(SAVE_DELAY_MS);
+    }
+
+    /**
+     * Write anything pending now, on the calling thread.  If a background
+     * write is in progress wait for it, but no longer than timeoutMs.
+     * @param timeoutMs
+     */
+    public void flush(long timeoutMs) {
+        // Only stops a job that hasn't started yet.
+        saveJob.cancel();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (this) {
+            while (writing) {
+                long left = deadline - System.currentTimeMillis();
+                if (left <= 0) {
+                    return;
+                }
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        write();
+    }
+
+    /**
+     * Write whatever is pending.  If the write fails the changes go back
+     * in the queue for the next try.  Records are idempotent so writing
+     * some of them twice does no harm.
+     */
+    private void write() {
+        SessionChanges changes;
+        synchronized (this) {
+            if (pending == null) {
+                return;
+            }
+            changes = pending;
+            pending = null;
+            writing = true;
+        }
+        try {
+            journal.append(changes);
+        } catch (IOException e) {
+            e.printStackTrace();
+            synchronized (this) {
+                if (pending != null) {
+                    changes.merge(pending);
+                }
+                pending = changes;
+            }
+        } finally {
+            synchronized (this) {
+                writing = false;
+                notifyAll();
+            }
+        }
+    }
+}
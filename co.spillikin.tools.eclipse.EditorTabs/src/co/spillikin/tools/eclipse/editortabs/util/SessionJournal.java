@@ -0,0 +1,577 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import javax.xml.bind.JAXBException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import co.spillikin.tools.eclipse.editortabs.TabsPluginException;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.SessionChanges;
+import co.spillikin.tools.eclipse.editortabs.model.SessionLoader;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_COMPACTING_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.JOURNAL_COMPACT_THRESHOLD;
+import static co.spillikin.tools.eclipse.editortabs.Constants.MIGRATED_SUFFIX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SHARD_DIRECTORY;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SAVE_FLUSH_TIMEOUT_MS;
+import static co.spillikin.tools.eclipse.editortabs.Constants.VERSION_MAJOR;
+import static co.spillikin.tools.eclipse.editortabs.Constants.VERSION_MINOR;
+
+/**
+ * Write ahead journal for the data model.
+ *
+ * Rewriting the entire XML file every time a handler runs gets slow
+ * once there are a few thousand sessions.  Instead each save appends
+ * a few small records to a journal file.  The checkpoint the journal
+ * applies to is a ShardedStore, one file per session plus a manifest.
+ * On startup we read the manifest and replay the journal on top of it.
+ *
+ * Once enough records pile up the journal is renamed and a background
+ * job folds it into the store.  Only sessions named in the journal get
+ * their shard rewritten, the rest are not even read.  The job works
+ * entirely from files on disk, never from the live model, so it does
+ * not need to lock anything the UI thread touches.
+ *
+ * Before 1.2 the checkpoint was a single file at checkpointPath.  If
+ * that is there and the store isn't, load() moves it into the store
+ * and renames it out of the way.
+ *
+ * Record layout: int length, body, int CRC32 of body.
+ * Body starts with an op code byte.
+ *   PUT      name, int length, session XML
+ *   REMOVE   name
+ *   POINTERS current name, previous name (each preceded by a present flag)
+ * A torn or corrupt record (Eclipse killed mid write) ends the replay
+ * and is cut off the end of the file.
+ *
+ * Records are idempotent so replaying a journal twice is harmless. That
+ * is what happens if we die between writing to the store and deleting
+ * the journal that went into it.
+ *
+ * Only session names are read from the manifest at startup.  We are
+ * also the SessionLoader that reads shards on demand.  Sessions still
+ * unloaded were never touched, so compaction never rewrites their shard.
+ *
+ * @author chris
+ *
+ */
+public class SessionJournal implements SessionLoader {
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_POINTERS = 3;
+
+    // Full path to the old single file checkpoint.  The journal and
+    // the store sit next to it.
+    private String checkpointPath;
+    private File journalFile;
+    private File compactingFile;
+    // Only touched under checkpointLock.
+    private ShardedStore store;
+
+    // Open lazily on first append.
+    private DataOutputStream out = null;
+    // Records in the active journal file.
+    private int recordCount = 0;
+
+    // Only one store access at a time.
+    private final Object checkpointLock = new Object();
+    // Counted down when the background compaction finishes.
+    private volatile CountDownLatch compactDone = null;
+
+    /**
+     * @param checkpointPath Full path to our (old) data file.
+     */
+    public SessionJournal(String checkpointPath) {
+        this.checkpointPath = checkpointPath;
+        this.journalFile = new File(checkpointPath + JOURNAL_SUFFIX);
+        this.compactingFile = new File(checkpointPath + JOURNAL_COMPACTING_SUFFIX);
+        this.store = new ShardedStore(
+            new File(new File(checkpointPath).getAbsoluteFile().getParentFile(),
+                SHARD_DIRECTORY));
+    }
+
+    /**
+     * Load the store and replay any journal records on top of it.
+     * Errors are stashed in the returned data just like Builder.load.
+     *
+     * @return EditorSessionsData, will not be null.
+     */
+    public synchronized EditorSessionsData load() {
+        EditorSessionsData sessionsData;
+        synchronized (checkpointLock) {
+            EditorSessionsData migrateError = migrate();
+            if (migrateError != null) {
+                return migrateError;
+            }
+            sessionsData = store.loadIndex();
+            if (sessionsData.getDataException() != null) {
+                return sessionsData;
+            }
+            sessionsData.getSessionMap().setLoader(this);
+            // A compaction that never finished.  Its records are not
+            // in the store yet.
+            replay(compactingFile, new MapApplier(sessionsData.getSessionMap()));
+        }
+        recordCount = replay(journalFile, new MapApplier(sessionsData.getSessionMap()));
+        // Replay went thru the normal setters.  None of that is new.
+        sessionsData.getSessionMap().clearChanges();
+        // Finish it off, otherwise the next compaction never starts.
+        if (compactingFile.exists()) {
+            startCompactionJob();
+        }
+        upgrade(sessionsData);
+        return sessionsData;
+    }
+
+    /**
+     * Move an old single file checkpoint into the store, if there is
+     * one and no store yet.  Must hold checkpointLock.
+     * @return data holding the error if the old file could not be read,
+     * else null.
+     */
+    private EditorSessionsData migrate() {
+        File legacy = new File(checkpointPath);
+        if (store.exists() || !legacy.exists()) {
+            return null;
+        }
+        EditorSessionsData sessionsData = Builder.load(checkpointPath);
+        if (sessionsData.getDataException() != null) {
+            return sessionsData;
+        }
+        try {
+            store.writeAll(sessionsData);
+        } catch (IOException e) {
+            // Leave the old file be and try again next time.
+            e.printStackTrace();
+            sessionsData.setDataException(new TabsPluginException(e));
+            return sessionsData;
+        }
+        if (!legacy.renameTo(new File(checkpointPath + MIGRATED_SUFFIX))) {
+            legacy.delete();
+        }
+        return null;
+    }
+
+    /**
+     * Stores older than this version of the plugin are brought up to
+     * date once, here.  Before VERSION_MINOR 2 selection text was kept
+     * whole, which could be megabytes.  Loading every session caps it
+     * (see FileInfo), writing them all back shrinks the store.
+     * Next time the version matches and this does nothing.
+     * @param sessionsData Just loaded.
+     */
+    private void upgrade(EditorSessionsData sessionsData) {
+        Integer major = sessionsData.getVersionMajor();
+        Integer minor = sessionsData.getVersionMinor();
+        if (!VERSION_MAJOR.equals(major) || minor == null || minor >= VERSION_MINOR) {
+            return;
+        }
+        sessionsData.getSessionMap().getSessionMap();
+        sessionsData.setHeader(VERSION_MAJOR, VERSION_MINOR, null, null);
+        try {
+            checkpoint(sessionsData);
+        } catch (IOException e) {
+            // Still works, just as big as it was.  We'll try again next time.
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Read sessions that load() only read by name.
+     * Called on the UI thread the first time a session is used.
+     */
+    @Override
+    public Map<String, EditorSession> loadSessions(Set<String> sessionNames) {
+        synchronized (checkpointLock) {
+            return store.loadSessions(sessionNames);
+        }
+    }
+
+    /**
+     * File paths of sessions that load() only read by name, from their
+     * shards.  Called on the UI thread when the path index is built.
+     */
+    @Override
+    public Map<String, List<String>> loadFilePaths(Set<String> sessionNames) {
+        synchronized (checkpointLock) {
+            return store.loadFilePaths(sessionNames);
+        }
+    }
+
+    /**
+     * Append the given changes to the journal.  This is the normal save.
+     * Kicks off a background compaction once the journal gets long.
+     *
+     * @param changes
+     * @throws IOException
+     */
+    public synchronized void append(SessionChanges changes) throws IOException {
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (out == null) {
+            out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+        }
+        try {
+            // Removes first. Update deletes and recreates under the same name.
+            for (String name : changes.getRemovedSessions()) {
+                writeRecord(removeRecord(name));
+            }
+            for (Map.Entry<String, EditorSession> entry : changes.getChangedSessions()
+                .entrySet()) {
+                writeRecord(putRecord(entry.getKey(), entry.getValue()));
+            }
+            if (changes.getPointersChanged()) {
+                writeRecord(pointersRecord(changes.getCurrentSessionName(),
+                    changes.getPreviousSessionName()));
+            }
+        } catch (JAXBException e) {
+            throw new IOException(e);
+        }
+        out.flush();
+
+        if (recordCount >= JOURNAL_COMPACT_THRESHOLD) {
+            startCompaction();
+        }
+    }
+
+    /**
+     * Write the whole model to the store and throw away the journal.
+     * Used when the model was replaced wholesale, e.g. by import.
+     *
+     * @param sessionsData
+     * @throws IOException
+     */
+    public synchronized void checkpoint(EditorSessionsData sessionsData) throws IOException {
+        closeJournal();
+        synchronized (checkpointLock) {
+            store.writeAll(sessionsData);
+            compactingFile.delete();
+            journalFile.delete();
+        }
+        recordCount = 0;
+        sessionsData.getSessionMap().clearChanges();
+    }
+
+    /**
+     * Close the journal and wait a while for any compaction to finish.
+     * Called when the plugin stops.  A compaction cut short is harmless,
+     * its journal is still there and gets replayed on the next start.
+     */
+    public void close() {
+        synchronized (this) {
+            closeJournal();
+        }
+        CountDownLatch done = compactDone;
+        if (done != null) {
+            try {
+                done.await(SAVE_FLUSH_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Rename the active journal out of the way and fold it into the
+     * store in the background.  If the last compaction is still
+     * running just keep appending.
+     */
+    private void startCompaction() {
+        if (compactingFile.exists()) {
+            return;
+        }
+        closeJournal();
+        if (!journalFile.renameTo(compactingFile)) {
+            return;
+        }
+        recordCount = 0;
+        startCompactionJob();
+    }
+
+    private void startCompactionJob() {
+        CountDownLatch done = new CountDownLatch(1);
+        compactDone = done;
+        Job compactJob = new Job("Compacting editor sessions journal") {
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    compact();
+                } finally {
+                    done.countDown();
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        compactJob.setSystem(true);
+        compactJob.schedule();
+    }
+
+    /**
+     * Background half of compaction.  Apply the renamed journal straight
+     * to the store, which rewrites only the shards it names, then delete
+     * the journal.  If anything fails the renamed journal stays put and
+     * is replayed on the next start.
+     */
+    private void compact() {
+        synchronized (checkpointLock) {
+            StoreApplier applier = new StoreApplier();
+            replay(compactingFile, applier);
+            try {
+                if (applier.error != null) {
+                    throw applier.error;
+                }
+                store.commit();
+            } catch (IOException e) {
+                e.printStackTrace();
+                // Put the store back the way the manifest on disk has it.
+                store.loadIndex();
+                return;
+            }
+            compactingFile.delete();
+        }
+    }
+
+    private void writeRecord(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        out.writeInt(body.length);
+        out.write(body);
+        out.writeInt((int) crc.getValue());
+        recordCount++;
+    }
+
+    private byte[] putRecord(String name, EditorSession session)
+        throws IOException, JAXBException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(OP_PUT);
+        body.writeUTF(name);
+        byte[] xml = Builder.sessionToBytes(session);
+        body.writeInt(xml.length);
+        body.write(xml);
+        return bytes.toByteArray();
+    }
+
+    private byte[] removeRecord(String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(OP_REMOVE);
+        body.writeUTF(name);
+        return bytes.toByteArray();
+    }
+
+    private byte[] pointersRecord(String current, String previous) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(OP_POINTERS);
+        writeNullableUTF(body, current);
+        writeNullableUTF(body, previous);
+        return bytes.toByteArray();
+    }
+
+    private static void writeNullableUTF(DataOutputStream body, String s) throws IOException {
+        body.writeBoolean(s != null);
+        if (s != null) {
+            body.writeUTF(s);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream body) throws IOException {
+        return body.readBoolean() ? body.readUTF() : null;
+    }
+
+    /**
+     * What replay does with each record.
+     */
+    private interface RecordApplier {
+        void put(String name, EditorSession session);
+
+        void remove(String name);
+
+        void pointers(String current, String previous);
+    }
+
+    /**
+     * Replay into the live model, on load.
+     */
+    private static class MapApplier implements RecordApplier {
+        private final SessionMap sessionMap;
+
+        MapApplier(SessionMap sessionMap) {
+            this.sessionMap = sessionMap;
+        }
+
+        @Override
+        public void put(String name, EditorSession session) {
+            sessionMap.restoreEditorSession(name, session);
+        }
+
+        @Override
+        public void remove(String name) {
+            sessionMap.deleteEditorSession(name);
+        }
+
+        @Override
+        public void pointers(String current, String previous) {
+            sessionMap.setCurrentSessionName(current);
+            sessionMap.setPreviousSessionName(previous);
+        }
+    }
+
+    /**
+     * Replay into the store, on compaction.  Must hold checkpointLock.
+     * A session put several times gets its shard written several times,
+     * which is fine, journals are short.
+     */
+    private class StoreApplier implements RecordApplier {
+        // First failure.  Nothing is committed if this is set.
+        private IOException error = null;
+
+        @Override
+        public void put(String name, EditorSession session) {
+            if (error != null) {
+                return;
+            }
+            try {
+                store.putSession(name, session);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        @Override
+        public void remove(String name) {
+            store.removeSession(name);
+        }
+
+        @Override
+        public void pointers(String current, String previous) {
+            store.setPointers(current, previous);
+        }
+    }
+
+    /**
+     * Apply every good record in the given journal file.
+     * Anything after the first bad record is cut off.
+     *
+     * @return number of records applied.
+     */
+    private int replay(File file, RecordApplier applier) {
+        if (!file.exists()) {
+            return 0;
+        }
+        int applied = 0;
+        long goodLength = 0;
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > file.length()) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    CRC32 crc = new CRC32();
+                    crc.update(body);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                if (!apply(body, applier)) {
+                    break;
+                }
+                applied++;
+                goodLength += 8 + body.length;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        if (goodLength < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(goodLength);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return applied;
+    }
+
+    private boolean apply(byte[] record, RecordApplier applier) {
+        try (DataInputStream body = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte op = body.readByte();
+            switch (op) {
+            case OP_PUT:
+                String name = body.readUTF();
+                byte[] xml = new byte[body.readInt()];
+                body.readFully(xml);
+                applier.put(name, Builder.sessionFromBytes(xml));
+                return true;
+            case OP_REMOVE:
+                applier.remove(body.readUTF());
+                return true;
+            case OP_POINTERS:
+                String current = readNullableUTF(body);
+                applier.pointers(current, readNullableUTF(body));
+                return true;
+            default:
+                return false;
+            }
+        } catch (IOException | JAXBException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.IEditorInput;
+import org.osgi.framework.FrameworkUtil;
+
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.util.PathResolver.Resolved;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.OPEN_BATCH_MAX;
+import static co.spillikin.tools.eclipse.editortabs.Constants.OPEN_SLICE_MS;
+
+/**
+ * Opens a session's files without freezing the UI.
+ *
+ * Finding each file (workspace, outside, or gone) happens on the
+ * job's thread, several at once (PathResolver).  Only making the tabs
+ * happens on the UI thread, a few at a time, each batch handed over
+ * with asyncExec.  The job waits for a batch to finish before sending
+ * the next, so the UI gets to paint and handle input in between, and
+ * Cancel stops it between batches.  A batch sent before a cancel
+ * doesn't open anything once it gets to run.
+ *
+ * Only one of these runs at a time (ONE_AT_A_TIME).  Switching again
+ * while one is running cancels it, the new one starts once it stops.
+ *
+ * Batches are sized to take about OPEN_SLICE_MS: the next one grows
+ * if the last was quick and shrinks if it was slow.
+ *
+ * The selected file goes first, so the tab the user will look at is up
+ * before the rest.  The first batch activates it (or the first one
+ * opened if there's no selected one here).  Opening a batch always
+ * makes the editor it activates, so each later batch makes its first
+ * editor and then hands activation back to the selected tab.
+ *
+ * @author chris
+ *
+ */
+public class SessionOpenJob extends Job {
+
+    // Shared by every open, so they run one after another.
+    private static final ISchedulingRule ONE_AT_A_TIME = new ISchedulingRule() {
+        @Override
+        public boolean contains(ISchedulingRule rule) {
+            return rule == this;
+        }
+
+        @Override
+        public boolean isConflicting(ISchedulingRule rule) {
+            return rule == this;
+        }
+    };
+
+    private final PluginUtil plugin;
+    private final Display display;
+    private final List<FileInfo> fileInfoList;
+    private final String selectedPath;
+
+    // Files found, selected one first, and their inputs.  Job thread.
+    private final List<FileInfo> found = new ArrayList<>();
+    private final List<IEditorInput> inputs = new ArrayList<>();
+    // The tab kept active while opening, and its input.  Job thread.
+    private FileInfo anchor = null;
+    private IEditorInput anchorInput = null;
+    // Files that weren't there, or didn't open.
+    private volatile int failed = 0;
+    // Tab order to put everything in when done.  Null to leave it.
+    private List<String> finalOrder = null;
+    // Set as soon as cancel is called, for batches already sent.
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param plugin
+     * @param display UI thread to make the tabs on.
+     * @param fileInfoList Files to open, in order.
+     * @param selectedPath Editor to select.  May be null.
+     */
+    public SessionOpenJob(PluginUtil plugin, Display display, List<FileInfo> fileInfoList,
+        String selectedPath) {
+        super("Opening editor session");
+        this.plugin = plugin;
+        this.display = display;
+        this.fileInfoList = new ArrayList<>(fileInfoList);
+        this.selectedPath = selectedPath;
+        setUser(true);
+        setRule(ONE_AT_A_TIME);
+    }
+
+    /**
+     * Interface
+     * Once everything is open, move the tabs into this order.
+     * Set before scheduling.
+     * @param orderedPaths Full paths.  Null to leave the order alone.
+     */
+    public void setFinalOrder(List<String> orderedPaths) {
+        finalOrder = (orderedPaths == null) ? null : new ArrayList<>(orderedPaths);
+    }
+
+    /**
+     * Interface
+     * Good once the job is done.
+     * @return number of files that couldn't be opened.
+     */
+    public int getFailedCount() {
+        return failed;
+    }
+
+    @Override
+    protected void canceling() {
+        cancelled = true;
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        SubMonitor progress = SubMonitor.convert(monitor, getName(),
+            fileInfoList.size() * 2 + 1);
+
+        // Off the UI thread: which files are there, and how to open them.
+        // Selected but not one of ours, it's already open.  Found along
+        // with the rest, so it gets the same timeout.
+        List<FileInfo> toResolve = ordered();
+        FileInfo selected = null;
+        if (selectedPath != null
+            && (toResolve.isEmpty() || !toResolve.get(0).getFullPath().equals(selectedPath))) {
+            selected = new FileInfo("", selectedPath, 0, 0, 0, 0, null, true);
+            toResolve.add(selected);
+        }
+        List<Resolved> resolved;
+        try {
+            resolved = new PathResolver().resolve(toResolve, progress);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Status.CANCEL_STATUS;
+        }
+        if (resolved == null) {
+            return Status.CANCEL_STATUS;
+        }
+        Resolved selectedResolved = (selected == null) ? null
+            : resolved.remove(resolved.size() - 1);
+        for (Resolved r : resolved) {
+            if (r.isFound()) {
+                found.add(r.getFileInfo());
+                inputs.add(r.getInput());
+            } else {
+                failed++;
+            }
+        }
+        progress.setWorkRemaining(found.size());
+        if (found.isEmpty()) {
+            return Status.OK_STATUS;
+        }
+        if (selectedResolved != null && selectedResolved.isFound()) {
+            // Selected, but already open.  Keep it selected.
+            anchor = selected;
+            anchorInput = selectedResolved.getInput();
+        }
+        if (anchorInput == null) {
+            anchor = found.get(0);
+            anchorInput = inputs.get(0);
+        }
+
+        // On the UI thread, a slice at a time.
+        int next = 0;
+        int batchSize = 1;
+        while (next < found.size()) {
+            if (progress.isCanceled()) {
+                return Status.CANCEL_STATUS;
+            }
+            Batch batch = new Batch(next, Math.min(found.size(), next + batchSize));
+            try {
+                display.asyncExec(batch);
+                // A batch already sent runs even if we're cancelled.
+                // Only a display going away means it never will.
+                while (!batch.done.await(100, TimeUnit.MILLISECONDS)) {
+                    if (display.isDisposed() || cancelled) {
+                        return Status.CANCEL_STATUS;
+                    }
+                }
+            } catch (SWTException e) {
+                // Display disposed.
+                return Status.CANCEL_STATUS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Status.CANCEL_STATUS;
+            }
+            progress.worked(batch.to - batch.from);
+            next = batch.to;
+            batchSize = nextBatchSize(batchSize, batch.elapsedMs);
+        }
+        if (finalOrder != null && !display.isDisposed()) {
+            display.asyncExec(() -> {
+                if (!cancelled) {
+                    plugin.reorderEditors(finalOrder);
+                }
+            });
+        }
+        // Running with -debug, say what the cache saved us.
+        if (Platform.inDebugMode()) {
+            Platform.getLog(FrameworkUtil.getBundle(getClass())).log(new Status(IStatus.INFO,
+                FrameworkUtil.getBundle(getClass()).getSymbolicName(),
+                ResolutionCache.getInstance().toString()));
+        }
+        return Status.OK_STATUS;
+    }
+
+    // Selected file first, the rest as they were.
+    private List<FileInfo> ordered() {
+        List<FileInfo> ordered = new ArrayList<>(fileInfoList.size());
+        for (FileInfo fi : fileInfoList) {
+            if (fi.getFullPath().equals(selectedPath)) {
+                ordered.add(0, fi);
+            } else {
+                ordered.add(fi);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Grow the batch while batches are quick, shrink it when they
+     * aren't.  Always at least one.
+     * @param size last batch size.
+     * @param elapsedMs how long it took.
+     * @return next batch size.
+     */
+    static int nextBatchSize(int size, long elapsedMs) {
+        if (elapsedMs < OPEN_SLICE_MS / 2) {
+            return Math.min(size * 2, OPEN_BATCH_MAX);
+        }
+        if (elapsedMs > OPEN_SLICE_MS) {
+            return Math.max(size / 2, 1);
+        }
+        return size;
+    }
+
+    /**
+     * Makes the tabs for found[from, to) on the UI thread.
+     */
+    private class Batch implements Runnable {
+        final int from;
+        final int to;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile long elapsedMs = 0;
+
+        Batch(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            try {
+                // Another switch came in since this was sent.
+                if (cancelled) {
+                    return;
+                }
+                List<FileInfo> files = new ArrayList<>(found.subList(from, to));
+                List<IEditorInput> batchInputs = new ArrayList<>(inputs.subList(from, to));
+                boolean first = (from == 0);
+                // An already open anchor only goes in to be activated.
+                // Never one with an external editor, that would launch
+                // it again.
+                if (first && files.get(0) != anchor && plugin.hasInternalEditor(anchorInput)) {
+                    files.add(0, anchor);
+                    batchInputs.add(0, anchorInput);
+                }
+                if (!plugin.openInputsLazily(files, batchInputs,
+                    first ? anchor.getFullPath() : null)) {
+                    failed++;
+                }
+                if (!first) {
+                    plugin.selectEditor(anchor.getFullPath());
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+                failed++;
+            } finally {
+                elapsedMs = (System.nanoTime() - start) / 1000000;
+                done.countDown();
+            }
+        }
+    }
+}
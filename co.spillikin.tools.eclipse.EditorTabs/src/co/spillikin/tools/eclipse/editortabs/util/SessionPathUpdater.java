@@ -0,0 +1,142 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.ui.PlatformUI;
+
+import co.spillikin.tools.eclipse.editortabs.TabsPluginException;
+
+/**
+ * Keeps the paths in every session current when files or folders are
+ * renamed, moved or deleted in the workspace.  Without this a session
+ * still holds the old paths and quietly loses those files the next
+ * time it is opened.
+ *
+ * A moved file or folder is followed, a deleted one is dropped from
+ * the sessions.  Closing a project is not a delete, its files stay.
+ * Only the top of a moved or deleted folder is looked at here, the
+ * session map works out which files were under it (SessionMap.
+ * relocateFiles), so a big folder costs one lookup, not one per file.
+ * Derived folders (build output) and team private ones (.git, .svn)
+ * are never gone into, a clean build deleting every class file would
+ * otherwise mean a lookup per class file for nothing.
+ *
+ * The delta is read on whatever thread the workspace sends it on, the
+ * sessions are changed later on the UI thread, like everything else
+ * that touches them.
+ *
+ * @author chris
+ *
+ */
+public final class SessionPathUpdater implements IResourceChangeListener {
+
+    // Singleton
+    private static SessionPathUpdater instance = null;
+
+    /**
+     * Interface
+     * Start listening.  Called when the plugin starts.
+     */
+    public static synchronized void install() {
+        if (instance == null) {
+            instance = new SessionPathUpdater();
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(instance,
+                IResourceChangeEvent.POST_CHANGE);
+        }
+    }
+
+    /**
+     * Interface
+     * Stop listening.  Called when the plugin stops.
+     */
+    public static synchronized void uninstall() {
+        if (instance != null) {
+            ResourcesPlugin.getWorkspace().removeResourceChangeListener(instance);
+            instance = null;
+        }
+    }
+
+    private SessionPathUpdater() {
+    }
+
+    @Override
+    public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null) {
+            return;
+        }
+        Map<String, String> moved = new HashMap<>();
+        Set<String> deleted = new HashSet<>();
+        try {
+            delta.accept(d -> {
+                IResource resource = d.getResource();
+                // Nothing in there is ever in a session.  A removed
+                // resource no longer exists and reads as neither, but
+                // we never get that far into a derived folder.
+                if (resource.isDerived() || resource.isTeamPrivateMember()) {
+                    return false;
+                }
+                switch (d.getKind()) {
+                case IResourceDelta.REMOVED:
+                    String from = d.getFullPath().toString();
+                    if ((d.getFlags() & IResourceDelta.MOVED_TO) != 0) {
+                        moved.put(from, d.getMovedToPath().toString());
+                    } else {
+                        deleted.add(from);
+                    }
+                    // Anything under it went with it.
+                    return false;
+                case IResourceDelta.CHANGED:
+                    return true;
+                default:
+                    // Added, nothing of ours can be in there.
+                    return false;
+                }
+            });
+        } catch (CoreException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (moved.isEmpty() && deleted.isEmpty()) {
+            return;
+        }
+        if (!PlatformUI.isWorkbenchRunning()) {
+            return;
+        }
+        Display display = PlatformUI.getWorkbench().getDisplay();
+        display.asyncExec(() -> relocate(moved, deleted));
+    }
+
+    // UI thread.
+    private static void relocate(Map<String, String> moved, Set<String> deleted) {
+        try {
+            DataUtil fgData = DataUtil.getInstance();
+            if (fgData.getSessionMap().relocateFiles(moved, deleted) > 0) {
+                fgData.save();
+            }
+        } catch (TabsPluginException e) {
+            // Data never loaded, nothing to keep current.
+            e.printStackTrace();
+        }
+    }
+}
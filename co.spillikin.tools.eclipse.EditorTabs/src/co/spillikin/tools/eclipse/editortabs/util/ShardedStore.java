@@ -0,0 +1,404 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import co.spillikin.tools.eclipse.editortabs.TabsPluginException;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+import static co.spillikin.tools.eclipse.editortabs.Constants.MANIFEST_FILENAME;
+import static co.spillikin.tools.eclipse.editortabs.Constants.PARALLEL_SHARD_LOAD_MIN;
+import static co.spillikin.tools.eclipse.editortabs.Constants.SHARD_SUFFIX;
+
+/**
+ * The data model on disk as one small file per session (a shard) plus
+ * a manifest.  The manifest holds the version header, current and
+ * previous session names, and which shard belongs to which session.
+ * Session names can be anything, so shards are numbered rather than
+ * named after their session.
+ *
+ * Changing one session rewrites only its shard.  The manifest is only
+ * rewritten when names or pointers change.  Every file is written to
+ * a temp file and moved into place, so a crash leaves either the old
+ * or the new version, never half of one.  Shards are written before
+ * the manifest that points at them and deleted after the manifest
+ * that dropped them, so at worst a crash leaves an orphan shard, which
+ * the next writeAll cleans up.
+ *
+ * Not thread safe.  SessionJournal calls everything here under its
+ * checkpoint lock.
+ *
+ * Manifest layout: int magic, int format version, header (company,
+ * author, workspace name, version major, version minor), current and
+ * previous session names, int next shard number, int session count,
+ * then name and shard number for each session.  Nullable values are
+ * preceded by a present flag.
+ *
+ * @author chris
+ *
+ */
+public class ShardedStore {
+
+    // "ESDM"
+    private static final int MANIFEST_MAGIC = 0x4553444D;
+    private static final int MANIFEST_VERSION = 1;
+
+    private final File directory;
+    private final File manifestFile;
+
+    // What the manifest on disk says (or will, after commit).
+    private Map<String, Integer> shards = new HashMap<>();
+    private String currentSessionName = null;
+    private String previousSessionName = null;
+    private int nextShard = 1;
+    private EditorSessionsData header = new EditorSessionsData();
+
+    // Set when the manifest needs writing.
+    private boolean manifestChanged = false;
+    // Shards to delete once the manifest no longer mentions them.
+    private List<Integer> deadShards = new ArrayList<>();
+
+    /**
+     * @param directory where the manifest and shards live.
+     */
+    public ShardedStore(File directory) {
+        this.directory = directory;
+        this.manifestFile = new File(directory, MANIFEST_FILENAME);
+    }
+
+    /**
+     * @return true if there is a store on disk.
+     */
+    public boolean exists() {
+        return manifestFile.exists();
+    }
+
+    /**
+     * Read the manifest.  Sessions are added to the map by name only,
+     * their shards are read later thru loadSessions.
+     * Errors are stashed in the returned data just like Builder.load.
+     *
+     * @return EditorSessionsData, will not be null.
+     */
+    public EditorSessionsData loadIndex() {
+        try {
+            if (exists()) {
+                readManifest();
+            }
+        } catch (IOException e) {
+            EditorSessionsData eData = new EditorSessionsData();
+            eData.setDataException(new TabsPluginException(e));
+            return eData;
+        }
+        EditorSessionsData sessionsData = new EditorSessionsData();
+        sessionsData.setHeader(header.getVersionMajor(), header.getVersionMinor(),
+            header.getCompany(), header.getAuthor());
+        sessionsData.setWorkspaceName(header.getWorkspaceName());
+        SessionMap sessionMap = new SessionMap();
+        sessionMap.setCurrentSessionName(currentSessionName);
+        sessionMap.setPreviousSessionName(previousSessionName);
+        for (String name : shards.keySet()) {
+            sessionMap.addUnloadedSession(name);
+        }
+        sessionMap.clearChanges();
+        sessionsData.setSessionMap(sessionMap);
+        return sessionsData;
+    }
+
+    /**
+     * Read the shards for the given sessions.  Many at once are read
+     * in parallel.  A shard that can't be read is left out.
+     *
+     * @param sessionNames
+     * @return Map of session name to session.
+     */
+    public Map<String, EditorSession> loadSessions(Set<String> sessionNames) {
+        Map<String, EditorSession> found = new ConcurrentHashMap<>();
+        Map<String, Integer> wanted = new HashMap<>();
+        for (String name : sessionNames) {
+            Integer shard = shards.get(name);
+            if (shard != null) {
+                wanted.put(name, shard);
+            }
+        }
+        (wanted.size() >= PARALLEL_SHARD_LOAD_MIN ? wanted.entrySet().parallelStream()
+            : wanted.entrySet().stream()).forEach(entry -> {
+                try {
+                    found.put(entry.getKey(), readShard(entry.getValue()));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        return found;
+    }
+
+    /**
+     * The full paths of the files in the given sessions, read from
+     * their shards, for the path index.  Only the paths are kept, the
+     * sessions themselves stay unloaded.  Many at once are read in
+     * parallel.  A shard that can't be read is left out.
+     *
+     * @param sessionNames
+     * @return Map of session name to full paths.
+     */
+    public Map<String, List<String>> loadFilePaths(Set<String> sessionNames) {
+        Map<String, List<String>> found = new ConcurrentHashMap<>();
+        Map<String, Integer> wanted = new HashMap<>();
+        for (String name : sessionNames) {
+            Integer shard = shards.get(name);
+            if (shard != null) {
+                wanted.put(name, shard);
+            }
+        }
+        // Each session is dropped as soon as its paths are out.
+        (wanted.size() >= PARALLEL_SHARD_LOAD_MIN ? wanted.entrySet().parallelStream()
+            : wanted.entrySet().stream()).forEach(entry -> {
+                try {
+                    List<FileInfo> fileInfoList = readShard(entry.getValue())
+                        .getStoredFileInfoList();
+                    List<String> filePaths = new ArrayList<>(fileInfoList.size());
+                    for (FileInfo fi : fileInfoList) {
+                        filePaths.add(fi.getFullPath());
+                    }
+                    found.put(entry.getKey(), filePaths);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
+        return found;
+    }
+
+    /**
+     * Write (or overwrite) the shard for one session.  Takes effect on
+     * disk for new names once commit writes the manifest.
+     * @param name
+     * @param session
+     * @throws IOException
+     */
+    public void putSession(String name, EditorSession session) throws IOException {
+        Integer shard = shards.get(name);
+        if (shard == null) {
+            shard = nextShard++;
+            shards.put(name, shard);
+            manifestChanged = true;
+        }
+        writeShard(shard, session);
+    }
+
+    /**
+     * Drop a session.  Its shard goes once commit has written the manifest.
+     * @param name
+     */
+    public void removeSession(String name) {
+        Integer shard = shards.remove(name);
+        if (shard != null) {
+            deadShards.add(shard);
+            manifestChanged = true;
+        }
+    }
+
+    /**
+     * @param currentSessionName
+     * @param previousSessionName
+     */
+    public void setPointers(String currentSessionName, String previousSessionName) {
+        this.currentSessionName = currentSessionName;
+        this.previousSessionName = previousSessionName;
+        manifestChanged = true;
+    }
+
+    /**
+     * Write the manifest if anything in it changed, then delete
+     * shards no longer in it.
+     * @throws IOException
+     */
+    public void commit() throws IOException {
+        if (manifestChanged) {
+            writeManifest();
+            manifestChanged = false;
+        }
+        for (Integer shard : deadShards) {
+            shardFile(shard).delete();
+        }
+        deadShards.clear();
+    }
+
+    /**
+     * Replace everything on disk with the given model.  Every session
+     * is loaded and written.  Used for migration and import.
+     * @param sessionsData
+     * @throws IOException
+     */
+    public void writeAll(EditorSessionsData sessionsData) throws IOException {
+        directory.mkdirs();
+        Map<String, EditorSession> map = sessionsData.getSessionMap().getSessionMap();
+        Set<String> gone = new HashSet<>(shards.keySet());
+        gone.removeAll(map.keySet());
+        for (String name : gone) {
+            removeSession(name);
+        }
+        for (Map.Entry<String, EditorSession> entry : map.entrySet()) {
+            putSession(entry.getKey(), entry.getValue());
+        }
+        SessionMap sessionMap = sessionsData.getSessionMap();
+        setPointers(sessionMap.getCurrentSessionName(), sessionMap.getPreviousSessionName());
+        header = new EditorSessionsData();
+        header.setHeader(sessionsData.getVersionMajor(), sessionsData.getVersionMinor(),
+            sessionsData.getCompany(), sessionsData.getAuthor());
+        header.setWorkspaceName(sessionsData.getWorkspaceName());
+        commit();
+        deleteOrphans();
+    }
+
+    // Shards left behind by a crash between writing a shard and the
+    // manifest that would have named it.
+    private void deleteOrphans() {
+        Set<String> known = new HashSet<>();
+        for (Integer shard : shards.values()) {
+            known.add(shard + SHARD_SUFFIX);
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File f : files) {
+            if (f.getName().endsWith(SHARD_SUFFIX) && !known.contains(f.getName())) {
+                f.delete();
+            }
+        }
+    }
+
+    private File shardFile(int shard) {
+        return new File(directory, shard + SHARD_SUFFIX);
+    }
+
+    private EditorSession readShard(int shard) throws IOException {
+        return BinaryBuilder.readShard(
+            ByteBuffer.wrap(Files.readAllBytes(shardFile(shard).toPath())));
+    }
+
+    private void writeShard(int shard, EditorSession session) throws IOException {
+        directory.mkdirs();
+        File temp = new File(directory, shard + SHARD_SUFFIX + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temp))) {
+            BinaryBuilder.writeShard(session, out);
+        }
+        moveIntoPlace(temp, shardFile(shard));
+    }
+
+    private void readManifest() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(manifestFile)))) {
+            if (in.readInt() != MANIFEST_MAGIC) {
+                throw new IOException("Not an editor sessions manifest");
+            }
+            int version = in.readInt();
+            if (version != MANIFEST_VERSION) {
+                throw new IOException("Unknown editor sessions manifest version " + version);
+            }
+            EditorSessionsData newHeader = new EditorSessionsData();
+            String company = readNullableUTF(in);
+            String author = readNullableUTF(in);
+            String workspaceName = readNullableUTF(in);
+            Integer versionMajor = readNullableInt(in);
+            Integer versionMinor = readNullableInt(in);
+            newHeader.setHeader(versionMajor, versionMinor, company, author);
+            newHeader.setWorkspaceName(workspaceName);
+            String current = readNullableUTF(in);
+            String previous = readNullableUTF(in);
+            int next = in.readInt();
+            int count = in.readInt();
+            Map<String, Integer> newShards = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                newShards.put(name, in.readInt());
+            }
+            header = newHeader;
+            currentSessionName = current;
+            previousSessionName = previous;
+            nextShard = next;
+            shards = newShards;
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        directory.mkdirs();
+        File temp = new File(directory, MANIFEST_FILENAME + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MANIFEST_MAGIC);
+            out.writeInt(MANIFEST_VERSION);
+            writeNullableUTF(out, header.getCompany());
+            writeNullableUTF(out, header.getAuthor());
+            writeNullableUTF(out, header.getWorkspaceName());
+            writeNullableInt(out, header.getVersionMajor());
+            writeNullableInt(out, header.getVersionMinor());
+            writeNullableUTF(out, currentSessionName);
+            writeNullableUTF(out, previousSessionName);
+            out.writeInt(nextShard);
+            out.writeInt(shards.size());
+            for (Map.Entry<String, Integer> entry : shards.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue());
+            }
+        }
+        moveIntoPlace(temp, manifestFile);
+    }
+
+    private static void moveIntoPlace(File temp, File target) throws IOException {
+        Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeNullableUTF(DataOutputStream out, String s) throws IOException {
+        out.writeBoolean(s != null);
+        if (s != null) {
+            out.writeUTF(s);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableInt(DataOutputStream out, Integer i) throws IOException {
+        out.writeBoolean(i != null);
+        if (i != null) {
+            out.writeInt(i);
+        }
+    }
+
+    private static Integer readNullableInt(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
@@ -0,0 +1,424 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import co.spillikin.tools.eclipse.editortabs.model.EditorSession;
+import co.spillikin.tools.eclipse.editortabs.model.EditorSessionsData;
+import co.spillikin.tools.eclipse.editortabs.model.FileInfo;
+import co.spillikin.tools.eclipse.editortabs.model.SessionMap;
+
+/**
+ * Hand written streaming reader and writer for our XML file.
+ *
+ * JAXB builds the whole object tree plus a good deal of intermediate
+ * state before handing anything back.  With tens of thousands of
+ * FileInfo entries that spikes the heap.  This reads the file element
+ * by element with StAX and writes it straight to a buffered stream, so
+ * nothing but the model itself is ever held in memory.
+ *
+ * The output is byte for byte what JAXB (Builder's formatted marshaller)
+ * writes for the same model: same declaration, same 4 space indentation,
+ * attributes in alphabetical order, nulls left out, and the same
+ * escaping rules.  Files written by either can be read by either.
+ *
+ * Layout, for reference:
+ * EditorSessionsData (author company versionMajor versionMinor workspaceName)
+ *   sessionMapContainer (currentSessionName previousSessionName)
+ *     sessionMap
+ *       entry
+ *         key
+ *         value (isSnapshot keepAlphabetical label selectedFile)
+ *           FileInfo (endLine fileName fullPath isDirectory isEmpty
+ *                     length offset startLine)
+ *             text
+ *
+ * @author chris
+ *
+ */
+public class StreamBuilder {
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+    private static final String INDENT = "    ";
+    private static final int WRITE_BUFFER_SIZE = 8 * 1024;
+
+    // Element names
+    static final String ROOT = "EditorSessionsData";
+    static final String CONTAINER = "sessionMapContainer";
+    static final String MAP = "sessionMap";
+    static final String ENTRY = "entry";
+    static final String KEY = "key";
+    static final String VALUE = "value";
+    static final String FILE_INFO = "FileInfo";
+    static final String TEXT = "text";
+
+    private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+    static {
+        // Imports come from who knows where.  No DTDs, no external entities.
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    // ================================================
+    // Writing
+
+    /**
+     * Write the model to the given stream.  The stream is not closed.
+     * @param sessionsData
+     * @param out
+     * @throws IOException
+     */
+    public static void write(EditorSessionsData sessionsData, OutputStream out)
+        throws IOException {
+        // OutputStreamWriter allocates on every single char write, so
+        // everything goes thru a BufferedWriter first.
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8),
+            WRITE_BUFFER_SIZE);
+        w.write(DECLARATION);
+        w.write('\n');
+
+        w.write('<');
+        w.write(ROOT);
+        attribute(w, "author", sessionsData.getAuthor());
+        attribute(w, "company", sessionsData.getCompany());
+        attribute(w, "versionMajor", sessionsData.getVersionMajor());
+        attribute(w, "versionMinor", sessionsData.getVersionMinor());
+        attribute(w, "workspaceName", sessionsData.getWorkspaceName());
+        w.write(">\n");
+
+        SessionMap sessionMap = sessionsData.getSessionMap();
+        if (sessionMap != null) {
+            writeSessionMap(w, sessionMap);
+        }
+
+        w.write("</");
+        w.write(ROOT);
+        w.write(">\n");
+        w.flush();
+    }
+
+    private static void writeSessionMap(Writer w, SessionMap sessionMap) throws IOException {
+        indent(w, 1);
+        w.write('<');
+        w.write(CONTAINER);
+        attribute(w, "currentSessionName", sessionMap.getCurrentSessionName());
+        attribute(w, "previousSessionName", sessionMap.getPreviousSessionName());
+        w.write(">\n");
+
+        Map<String, EditorSession> map = sessionMap.getSessionMap();
+        indent(w, 2);
+        if (map.isEmpty()) {
+            w.write('<' + MAP + "/>\n");
+        } else {
+            w.write('<' + MAP + ">\n");
+            for (Map.Entry<String, EditorSession> entry : map.entrySet()) {
+                indent(w, 3);
+                w.write('<' + ENTRY + ">\n");
+                indent(w, 4);
+                w.write('<' + KEY + '>');
+                text(w, entry.getKey());
+                w.write("</" + KEY + ">\n");
+                writeSession(w, entry.getValue());
+                indent(w, 3);
+                w.write("</" + ENTRY + ">\n");
+            }
+            indent(w, 2);
+            w.write("</" + MAP + ">\n");
+        }
+
+        indent(w, 1);
+        w.write("</" + CONTAINER + ">\n");
+    }
+
+    private static void writeSession(Writer w, EditorSession session) throws IOException {
+        indent(w, 4);
+        w.write('<');
+        w.write(VALUE);
+        attribute(w, "isSnapshot", session.getIsSnapshot());
+        attribute(w, "keepAlphabetical", session.getKeepAlphabetical());
+        attribute(w, "label", session.getLabel());
+        attribute(w, "selectedFile", session.getSelectedFile());
+        List<FileInfo> fileInfoList = session.getStoredFileInfoList();
+        if (fileInfoList == null || fileInfoList.isEmpty()) {
+            w.write("/>\n");
+            return;
+        }
+        w.write(">\n");
+        for (FileInfo fi : fileInfoList) {
+            writeFileInfo(w, fi);
+        }
+        indent(w, 4);
+        w.write("</" + VALUE + ">\n");
+    }
+
+    private static void writeFileInfo(Writer w, FileInfo fi) throws IOException {
+        indent(w, 5);
+        w.write('<');
+        w.write(FILE_INFO);
+        attribute(w, "endLine", fi.getEndLine());
+        attribute(w, "fileName", fi.getFileName());
+        attribute(w, "fullPath", fi.getFullPath());
+        attribute(w, "isDirectory", fi.getIsDirectory());
+        attribute(w, "isEmpty", fi.getIsEmpty());
+        attribute(w, "length", fi.getLength());
+        attribute(w, "offset", fi.getOffset());
+        attribute(w, "startLine", fi.getStartLine());
+        if (fi.getText() == null) {
+            w.write("/>\n");
+            return;
+        }
+        w.write(">\n");
+        indent(w, 6);
+        w.write('<' + TEXT + '>');
+        text(w, fi.getText());
+        w.write("</" + TEXT + ">\n");
+        indent(w, 5);
+        w.write("</" + FILE_INFO + ">\n");
+    }
+
+    private static void indent(Writer w, int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            w.write(INDENT);
+        }
+    }
+
+    // Null attributes are left out, same as JAXB.
+    private static void attribute(Writer w, String name, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        w.write(' ');
+        w.write(name);
+        w.write("=\"");
+        escape(w, value.toString(), true);
+        w.write('"');
+    }
+
+    private static void text(Writer w, String s) throws IOException {
+        escape(w, s, false);
+    }
+
+    /**
+     * JAXB's escaping rules.  & < > always, " in attributes.  CR is
+     * always a character reference and LF only inside attributes, so
+     * line endings survive attribute value normalization.
+     */
+    private static void escape(Writer w, String s, boolean isAttribute) throws IOException {
+        // Copy runs of plain characters in one go.
+        int start = 0;
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            String replacement;
+            switch (s.charAt(i)) {
+            case '&':
+                replacement = "&amp;";
+                break;
+            case '<':
+                replacement = "&lt;";
+                break;
+            case '>':
+                replacement = "&gt;";
+                break;
+            case '"':
+                replacement = isAttribute ? "&quot;" : null;
+                break;
+            case '\r':
+                replacement = "&#13;";
+                break;
+            case '\n':
+                replacement = isAttribute ? "&#10;" : null;
+                break;
+            default:
+                replacement = null;
+            }
+            if (replacement != null) {
+                w.write(s, start, i - start);
+                w.write(replacement);
+                start = i + 1;
+            }
+        }
+        w.write(s, start, len - start);
+    }
+
+    // ================================================
+    // Reading
+
+    /**
+     * Read the model from the given stream.  The stream is not closed.
+     * Unknown elements are skipped and unknown attributes ignored,
+     * same as JAXB.
+     *
+     * @param in
+     * @return EditorSessionsData
+     * @throws XMLStreamException if the XML is broken or not ours.
+     */
+    public static EditorSessionsData read(InputStream in) throws XMLStreamException {
+        XMLStreamReader r = inputFactory.createXMLStreamReader(in);
+        try {
+            r.nextTag();
+            if (!ROOT.equals(r.getLocalName())) {
+                throw new XMLStreamException("Not an editor sessions file: " + r.getLocalName(),
+                    r.getLocation());
+            }
+            EditorSessionsData sessionsData = new EditorSessionsData();
+            sessionsData.setHeader(intAttribute(r, "versionMajor"),
+                intAttribute(r, "versionMinor"), r.getAttributeValue(null, "company"),
+                r.getAttributeValue(null, "author"));
+            String workspaceName = r.getAttributeValue(null, "workspaceName");
+            if (workspaceName != null) {
+                sessionsData.setWorkspaceName(workspaceName);
+            }
+            while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if (CONTAINER.equals(r.getLocalName())) {
+                    sessionsData.setSessionMap(readSessionMap(r));
+                } else {
+                    skip(r);
+                }
+            }
+            return sessionsData;
+        } finally {
+            r.close();
+        }
+    }
+
+    // Positioned on sessionMapContainer, leaves on its end tag.
+    private static SessionMap readSessionMap(XMLStreamReader r) throws XMLStreamException {
+        SessionMap sessionMap = new SessionMap();
+        sessionMap.setCurrentSessionName(r.getAttributeValue(null, "currentSessionName"));
+        sessionMap.setPreviousSessionName(r.getAttributeValue(null, "previousSessionName"));
+        while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (MAP.equals(r.getLocalName())) {
+                while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    if (ENTRY.equals(r.getLocalName())) {
+                        readEntry(r, sessionMap);
+                    } else {
+                        skip(r);
+                    }
+                }
+            } else {
+                skip(r);
+            }
+        }
+        sessionMap.clearChanges();
+        return sessionMap;
+    }
+
+    // Positioned on entry, leaves on its end tag.
+    private static void readEntry(XMLStreamReader r, SessionMap sessionMap)
+        throws XMLStreamException {
+        String key = null;
+        EditorSession session = null;
+        while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (KEY.equals(r.getLocalName())) {
+                key = r.getElementText();
+            } else if (VALUE.equals(r.getLocalName())) {
+                session = readSession(r);
+            } else {
+                skip(r);
+            }
+        }
+        if (key != null && session != null) {
+            sessionMap.restoreEditorSession(key, session);
+        }
+    }
+
+    // Positioned on value, leaves on its end tag.
+    private static EditorSession readSession(XMLStreamReader r) throws XMLStreamException {
+        String label = r.getAttributeValue(null, "label");
+        Boolean isSnapshot = booleanAttribute(r, "isSnapshot");
+        Boolean keepAlphabetical = booleanAttribute(r, "keepAlphabetical");
+        String selectedFile = r.getAttributeValue(null, "selectedFile");
+        List<FileInfo> fileInfoList = new ArrayList<>();
+        while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (FILE_INFO.equals(r.getLocalName())) {
+                fileInfoList.add(readFileInfo(r));
+            } else {
+                skip(r);
+            }
+        }
+        return EditorSession.fromStream(label, isSnapshot, keepAlphabetical, selectedFile,
+            fileInfoList);
+    }
+
+    // Positioned on FileInfo, leaves on its end tag.
+    private static FileInfo readFileInfo(XMLStreamReader r) throws XMLStreamException {
+        String fileName = r.getAttributeValue(null, "fileName");
+        String fullPath = r.getAttributeValue(null, "fullPath");
+        Integer startLine = intAttribute(r, "startLine");
+        Integer endLine = intAttribute(r, "endLine");
+        Integer offset = intAttribute(r, "offset");
+        Integer length = intAttribute(r, "length");
+        Boolean isEmpty = booleanAttribute(r, "isEmpty");
+        Boolean isDirectory = booleanAttribute(r, "isDirectory");
+        String text = null;
+        while (r.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            if (TEXT.equals(r.getLocalName())) {
+                text = r.getElementText();
+            } else {
+                skip(r);
+            }
+        }
+        return new FileInfo(fileName, fullPath, startLine, endLine, offset, length, text,
+            isEmpty, isDirectory);
+    }
+
+    // Skip the current element and everything in it.
+    private static void skip(XMLStreamReader r) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = r.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static Integer intAttribute(XMLStreamReader r, String name)
+        throws XMLStreamException {
+        String value = r.getAttributeValue(null, name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new XMLStreamException("Bad number for " + name + ": " + value,
+                r.getLocation());
+        }
+    }
+
+    // xsd:boolean, so "1" counts as true too.
+    private static Boolean booleanAttribute(XMLStreamReader r, String name) {
+        String value = r.getAttributeValue(null, name);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return "true".equals(value) || "1".equals(value);
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Eclipse Editor Sessions plugin.
+ * A plugin designed to allow users to save and manage working sets of
+ * files in Eclipse.
+ *
+ * Written by Christopher Hull
+ * May 2017
+ * http://www.chrishull.com
+ * http://www.spillikinaerospace.com
+ */
+package co.spillikin.tools.eclipse.editortabs.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.e4.ui.model.application.ui.MUIElement;
+import org.eclipse.e4.ui.model.application.ui.basic.MPart;
+import org.eclipse.e4.ui.model.application.ui.basic.MPartStack;
+import org.eclipse.e4.ui.model.application.ui.basic.MStackElement;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.ui.IEditorReference;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.IWorkbenchPart;
+import org.eclipse.ui.internal.WorkbenchPartReference;
+
+import co.spillikin.tools.eclipse.editortabs.model.SwitchPlan;
+
+/**
+ * Puts editor tabs in a given order by moving them in the E4
+ * application model, instead of closing them all and opening them
+ * again.  No editor is closed or made, each keeps its undo history,
+ * folding and everything else.
+ *
+ * Each tab is an MPart in an MPartStack's children, and the tab order
+ * is the order of those children.  Moving a child (EList.move) moves
+ * its tab.  Only the fewest tabs are moved: the ones already in order
+ * (longest increasing run, same as SwitchPlan) stay where they are, the
+ * rest are put right after the tab they should follow.
+ *
+ * Editors split over several stacks are put in order within each
+ * stack.  Other things in a stack (a web browser, say) stay put.
+ *
+ * A tab whose editor was never made (opened lazily) has no site to ask
+ * for its MPart, so for those the MPart comes from the workbench's own
+ * reference class.  Not API, but there is no other way to get it.
+ *
+ * UI thread only.
+ *
+ * @author chris
+ *
+ */
+public final class TabReorderer {
+
+    private TabReorderer() {
+    }
+
+    /**
+     * Interface
+     * Put the tabs showing the given files in the given order.  Files
+     * not open are skipped, open files not given are left alone.
+     *
+     * @param workbenchPage
+     * @param orderedPaths Full paths, in the order wanted.
+     * @return number of tabs moved, or -1 if tabs couldn't be moved.
+     */
+    public static int reorder(IWorkbenchPage workbenchPage, List<String> orderedPaths) {
+        EditorIndex index = new EditorIndex(workbenchPage);
+        // Wanted order, stack by stack.
+        Map<MPartStack, List<MPart>> byStack = new LinkedHashMap<>();
+        for (String path : orderedPaths) {
+            IEditorReference er = index.getReference(path);
+            MPart part = (er == null) ? null : getModel(er);
+            if (part == null) {
+                continue;
+            }
+            MUIElement parent = part.getParent();
+            if (parent instanceof MPartStack) {
+                byStack.computeIfAbsent((MPartStack) parent, k -> new ArrayList<>()).add(part);
+            }
+        }
+        int moves = 0;
+        for (Map.Entry<MPartStack, List<MPart>> entry : byStack.entrySet()) {
+            int moved = reorder(entry.getKey(), entry.getValue());
+            if (moved < 0) {
+                return -1;
+            }
+            moves += moved;
+        }
+        return moves;
+    }
+
+    // The MPart showing an editor.
+    private static MPart getModel(IEditorReference er) {
+        IWorkbenchPart part = er.getPart(false);
+        if (part != null) {
+            MPart model = part.getSite().getService(MPart.class);
+            if (model != null) {
+                return model;
+            }
+        }
+        if (er instanceof WorkbenchPartReference) {
+            return ((WorkbenchPartReference) er).getModel();
+        }
+        return null;
+    }
+
+    // Order the given parts within one stack.
+    private static int reorder(MPartStack stack, List<MPart> wanted) {
+        List<MStackElement> children = stack.getChildren();
+        if (!(children instanceof EList)) {
+            // Can't move without removing, which would close the editor.
+            return -1;
+        }
+        EList<MStackElement> list = (EList<MStackElement>) children;
+
+        // Place in wanted order of each part, taken in tab order.
+        int n = wanted.size();
+        Integer[] byTab = new Integer[n];
+        int[] at = new int[n];
+        for (int r = 0; r < n; r++) {
+            byTab[r] = r;
+            at[r] = list.indexOf(wanted.get(r));
+        }
+        Arrays.sort(byTab, (a, b) -> Integer.compare(at[a], at[b]));
+        List<Integer> ranks = new ArrayList<>(n);
+        for (Integer r : byTab) {
+            ranks.add(r);
+        }
+        Set<Integer> inOrder = new HashSet<>(SwitchPlan.longestIncreasing(ranks));
+
+        int moves = 0;
+        MPart previous = null;
+        for (int r = 0; r < n; r++) {
+            MPart part = wanted.get(r);
+            if (!inOrder.contains(r)) {
+                int from = list.indexOf(part);
+                int to = -1;
+                if (previous == null) {
+                    // Goes before all the others.
+                    int first = Integer.MAX_VALUE;
+                    for (MPart other : wanted) {
+                        if (other != part) {
+                            first = Math.min(first, list.indexOf(other));
+                        }
+                    }
+                    if (from > first) {
+                        to = first;
+                    }
+                } else {
+                    // Goes right after the one before it.
+                    int after = list.indexOf(previous);
+                    if (from != after + 1) {
+                        to = from > after ? after + 1 : after;
+                    }
+                }
+                if (to >= 0) {
+                    list.move(to, part);
+                    moves++;
+                }
+            }
+            previous = part;
+        }
+        return moves;
+    }
+}